@@ -1,6 +1,7 @@
 package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
 import androidx.core.content.ContextCompat;
 import androidx.databinding.DataBindingUtil;
 import androidx.lifecycle.ViewModelProvider;
@@ -8,17 +9,27 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
+import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+
+import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.adapter.UserAdapter;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.databinding.ActivityMainBinding;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageLoader;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserScreen;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserUiState;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserViewModel;
 
 /**
@@ -27,15 +38,31 @@ import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserView
  * - Hilt dependency injection
  * - MVVM architecture with LiveData
  * - SwipeRefreshLayout for pull-to-refresh
- * - Empty state and error state handling
+ * - Toolbar search over name, username and email
+ * - Avatars loaded off the main thread, cancelled on recycle and prefetched ahead of scrolling
+ * - Loading, empty and error states driven by a single UI state
  * - Material Design 3 components
  */
 @AndroidEntryPoint
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    /** Rows inflated ahead of the first list, about one screen plus the prefetched rows */
+    private static final int PREINFLATED_ROWS = 12;
+    /** Whether time-to-first-row was recorded; only the first activity after a cold start should */
+    private static boolean firstRowRecorded;
 
     private UserViewModel userViewModel;
     private UserAdapter adapter;
     private ActivityMainBinding binding;
+    /** Last state applied to the views, and the screen it mapped to */
+    private UserUiState renderedState;
+    private UserScreen renderedScreen;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @Inject
+    ImageLoader<Bitmap> avatarLoader;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -50,6 +77,14 @@ public class MainActivity extends AppCompatActivity {
         observeViewModel();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Metrics:\n" + metrics.dump());
+        }
+    }
+
     /**
      * Sets up the toolbar
      */
@@ -62,6 +97,40 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Adds the search action to the toolbar
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+
+        // Restore a query kept by the ViewModel across configuration changes
+        String query = userViewModel.getSearchQuery();
+        if (!query.isEmpty()) {
+            searchItem.expandActionView();
+            searchView.setQuery(query, false);
+        }
+
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                userViewModel.setSearchQuery(query);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                userViewModel.setSearchQuery(newText);
+                return true;
+            }
+        });
+        return true;
+    }
+
     /**
      * Sets up the RecyclerView with adapter and layout manager
      */
@@ -70,8 +139,10 @@ public class MainActivity extends AppCompatActivity {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setHasFixedSize(true);
 
-        adapter = new UserAdapter();
+        adapter = new UserAdapter(avatarLoader, getResources().getDimensionPixelSize(R.dimen.avatar_size));
+        recyclerView.setRecycledViewPool(new RecyclerView.RecycledViewPool());
         recyclerView.setAdapter(adapter);
+        adapter.preInflate(recyclerView, PREINFLATED_ROWS);
 
         adapter.setOnItemClickListener(user -> {
             if (user != null && user.getName() != null) {
@@ -82,6 +153,13 @@ public class MainActivity extends AppCompatActivity {
                 ).show();
             }
         });
+
+        // Only has an effect when paged loading is enabled
+        adapter.setOnLoadMoreListener(() -> {
+            if (userViewModel != null) {
+                userViewModel.loadNextPage();
+            }
+        });
     }
 
     /**
@@ -114,103 +192,65 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Observes ViewModel LiveData for users, errors, and loading states
-     * Implements proper state management with empty state and error handling
+     * Observes the ViewModel's UI state
+     * The state arrives as one object per change, so each change costs at most one layout pass.
      */
     private void observeViewModel() {
-        // Observe users list
-        userViewModel.getAllUsers().observe(this, userList -> {
-            if (userList != null) {
-                updateUserList(userList);
-            }
-        });
-
-        // Observe error messages
-        userViewModel.getErrorMessage().observe(this, errorMessage -> {
-            if (errorMessage != null && !errorMessage.isEmpty()) {
-                showErrorState(errorMessage);
-            }
-        });
-
-        // Observe loading state
-        userViewModel.isLoading().observe(this, isLoading -> {
-            if (isLoading != null) {
-                updateLoadingState(isLoading);
+        binding.retryButton.setOnClickListener(v -> {
+            if (userViewModel != null) {
+                userViewModel.refreshUsers();
             }
         });
+        userViewModel.getUiState().observe(this, this::render);
     }
 
     /**
-     * Updates the user list and handles empty state
+     * Applies a UI state, touching only the views whose part of the state changed
+     * The list stays visible while it refreshes; only the swipe indicator shows progress.
      */
-    private void updateUserList(List<User> userList) {
-        binding.swipeRefreshLayout.setRefreshing(false);
-        
-        if (userList.isEmpty()) {
-            showEmptyState();
-        } else {
-            hideEmptyState();
-            hideErrorState();
-            adapter.setUserList(new ArrayList<>(userList));
-        }
-    }
+    private void render(UserUiState state) {
+        UserUiState previous = renderedState;
+        renderedState = state;
+        UserScreen screen = UserScreen.of(state);
 
-    /**
-     * Updates the loading state UI
-     */
-    private void updateLoadingState(boolean isLoading) {
-        if (isLoading) {
-            binding.progressIndicator.setVisibility(View.VISIBLE);
-            binding.recyclerView.setVisibility(View.GONE);
-            hideEmptyState();
-            hideErrorState();
-        } else {
-            binding.progressIndicator.setVisibility(View.GONE);
-            binding.recyclerView.setVisibility(View.VISIBLE);
+        List<User> visibleUsers = state.getVisibleUsers();
+        if (visibleUsers != null && (previous == null || visibleUsers != previous.getVisibleUsers())) {
+            // Lists from the ViewModel are never mutated after publishing, so no copy is needed
+            adapter.setUserList(visibleUsers);
         }
-    }
 
-    /**
-     * Shows empty state when no users are available
-     */
-    private void showEmptyState() {
-        binding.emptyStateLayout.setVisibility(View.VISIBLE);
-        binding.recyclerView.setVisibility(View.GONE);
-        binding.errorStateLayout.setVisibility(View.GONE);
-    }
+        if (screen == UserScreen.ERROR && (screen != renderedScreen
+                || !Objects.equals(state.getErrorMessage(), previous.getErrorMessage()))) {
+            binding.errorMessageText.setText(state.getErrorMessage() != null
+                    ? state.getErrorMessage()
+                    : getString(R.string.error_loading_users));
+        }
 
-    /**
-     * Hides empty state
-     */
-    private void hideEmptyState() {
-        binding.emptyStateLayout.setVisibility(View.GONE);
-    }
+        if (screen == UserScreen.CONTENT && !firstRowRecorded) {
+            firstRowRecorded = true;
+            metrics.recordSince(BuildConfig.STARTUP_PREFETCH ? "startup.first_row.prefetch" : "startup.first_row",
+                    ((MyApplication) getApplication()).getStartedAtNanos());
+        }
 
-    /**
-     * Shows error state with retry button
-     */
-    private void showErrorState(String errorMessage) {
-        binding.swipeRefreshLayout.setRefreshing(false);
-        binding.errorStateLayout.setVisibility(View.VISIBLE);
-        binding.recyclerView.setVisibility(View.GONE);
-        binding.emptyStateLayout.setVisibility(View.GONE);
-        
-        binding.errorMessageText.setText(
-            errorMessage != null ? errorMessage : getString(R.string.error_loading_users)
-        );
+        if (screen != renderedScreen) {
+            Log.d(TAG, "Screen " + renderedScreen + " -> " + screen);
+            renderedScreen = screen;
+            setVisible(binding.recyclerView, screen == UserScreen.CONTENT);
+            setVisible(binding.progressIndicator, screen == UserScreen.LOADING);
+            setVisible(binding.emptyStateLayout, screen == UserScreen.EMPTY);
+            setVisible(binding.errorStateLayout, screen == UserScreen.ERROR);
+        }
 
-        // Setup retry button
-        binding.retryButton.setOnClickListener(v -> {
-            if (userViewModel != null) {
-                userViewModel.refreshUsers();
-            }
-        });
+        boolean refreshing = state.isLoading() && screen != UserScreen.LOADING;
+        if (binding.swipeRefreshLayout.isRefreshing() != refreshing) {
+            binding.swipeRefreshLayout.setRefreshing(refreshing);
+        }
     }
 
-    /**
-     * Hides error state
-     */
-    private void hideErrorState() {
-        binding.errorStateLayout.setVisibility(View.GONE);
+    private static void setVisible(View view, boolean visible) {
+        int visibility = visible ? View.VISIBLE : View.GONE;
+        if (view.getVisibility() != visibility) {
+            view.setVisibility(visibility);
+        }
     }
 }
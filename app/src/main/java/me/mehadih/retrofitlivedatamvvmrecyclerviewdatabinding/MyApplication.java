@@ -1,18 +1,89 @@
 package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding;
 
 import android.app.Application;
+import android.util.Log;
 
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.inject.Inject;
+
+import dagger.Lazy;
 import dagger.hilt.android.HiltAndroidApp;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.sync.UserSyncScheduler;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
 
 /**
  * Application class for dependency injection setup
  * Using Hilt for modern dependency injection (2025 best practice)
+ *
+ * When {@code BuildConfig.STARTUP_PREFETCH} is set, the users fetch starts here, in
+ * parallel with MainActivity's inflation, and the ViewModel joins it instead of starting
+ * its own. The repository, and with it the OkHttp client, its disk cache and TLS setup,
+ * is created on the IO executor, and the prefetch request opens the pooled connection
+ * that later requests reuse.
+ *
+ * The periodic background sync is (re)scheduled from the IO executor on every start. When
+ * the process is started for the sync job itself, the job joins the startup prefetch.
+ * Either task is skipped if the executor rejects it; the screen then fetches on its own,
+ * and the next start schedules the sync.
+ *
+ * Memory pressure signals are forwarded to {@link SnapshotCache}, which gives up the
+ * in-memory user snapshots while the app is hidden or the system runs low.
  */
 @HiltAndroidApp
 public class MyApplication extends Application {
+    private static final String TAG = "MyApplication";
+    /** When the process started, as far as the app can tell; startup metrics count from here */
+    private long startedAtNanos;
+
+    @Inject
+    InstrumentedExecutor ioExecutor;
+
+    @Inject
+    Lazy<UserRepository> userRepository;
+
+    @Inject
+    SnapshotCache snapshotCache;
+
+    @Inject
+    Lazy<UserSyncScheduler> syncScheduler;
+
     @Override
     public void onCreate() {
+        startedAtNanos = System.nanoTime();
         super.onCreate();
+        if (BuildConfig.STARTUP_PREFETCH) {
+            runInBackground("users prefetch", () -> userRepository.get().prefetchUsers());
+        }
+        runInBackground("sync scheduling", () -> syncScheduler.get().schedule());
+    }
+
+    private void runInBackground(String name, Runnable task) {
+        try {
+            ioExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "IO executor full, skipping " + name, e);
+        }
     }
-}
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        snapshotCache.onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        snapshotCache.onLowMemory();
+    }
+
+    /**
+     * Returns the System.nanoTime() at which the application was created
+     */
+    public long getStartedAtNanos() {
+        return startedAtNanos;
+    }
+}
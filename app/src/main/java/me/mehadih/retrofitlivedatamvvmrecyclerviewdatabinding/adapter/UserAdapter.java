@@ -1,19 +1,26 @@
 package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.adapter;
 
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
 import androidx.databinding.DataBindingUtil;
-import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
 
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.R;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.databinding.ItemUserBinding;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageLoader;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserItem;
 
 /**
  * Created By - Mehadi
@@ -23,56 +30,210 @@ import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
  */
 
 public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> {
-    private ArrayList<User> users;
+    /** The only view type; rows parked in the pool are registered under it */
+    public static final int VIEW_TYPE_USER = 0;
+    /** RecyclerView's default number of pooled holders per view type */
+    private static final int DEFAULT_MAX_POOLED_VIEWS = 5;
+    /** Number of rows from the end at which the next page is requested */
+    private static final int DEFAULT_PREFETCH_DISTANCE = 10;
+    /** Rows past the edge of the screen, in the scroll direction, whose avatars are prefetched */
+    private static final int AVATAR_PREFETCH_ROWS = 6;
+
+    /** Computes diffs on a background executor, or replays the changes of a delta list */
+    private final UserListDiffer differ = new UserListDiffer(this);
     private OnItemClickListener listener;
+    private OnLoadMoreListener loadMoreListener;
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+    private int loadMoreRequestedAt = -1;
+    /** Rows inflated in the background, waiting to be wrapped in a view holder */
+    private final ArrayDeque<ItemUserBinding> preInflatedRows = new ArrayDeque<>();
+    /** Loads avatars, or null to keep the placeholder icon */
+    @Nullable
+    private final ImageLoader<Bitmap> avatarLoader;
+    private final int avatarSizePx;
+    private final RecyclerView.OnScrollListener avatarPrefetcher = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            prefetchAvatars(recyclerView, dy);
+        }
+    };
+    /** Last visible position avatars were prefetched from */
+    private int avatarPrefetchedFrom = RecyclerView.NO_POSITION;
+
+    public UserAdapter() {
+        this(null, 0);
+    }
+
+    /**
+     * @param avatarLoader Loads the avatar shown in each row
+     * @param avatarSizePx Size avatars are shown at, which they are decoded for
+     */
+    public UserAdapter(@Nullable ImageLoader<Bitmap> avatarLoader, int avatarSizePx) {
+        this.avatarLoader = avatarLoader;
+        this.avatarSizePx = avatarSizePx;
+        // Rows keep their views across list updates, and animations follow users rather than positions
+        setHasStableIds(true);
+    }
+
     @NonNull
     @Override
     public UserViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-
-        ItemUserBinding itemUserBinding = DataBindingUtil.inflate(LayoutInflater.from(parent.getContext()), R.layout.item_user, parent, false);
+        ItemUserBinding itemUserBinding = preInflatedRows.poll();
+        if (itemUserBinding == null) {
+            itemUserBinding = DataBindingUtil.inflate(LayoutInflater.from(parent.getContext()), R.layout.item_user, parent, false);
+        }
         return new UserViewHolder(itemUserBinding);
     }
 
+    /**
+     * Inflates rows off the main thread and parks them in the RecyclerView's view pool
+     * Call once the adapter is set and before the first list arrives, so the first layout
+     * and fling reuse pooled rows instead of inflating item_user on demand. Rows that cannot
+     * be inflated in the background are inflated on the main thread by AsyncLayoutInflater.
+     */
+    @MainThread
+    public void preInflate(@NonNull RecyclerView recyclerView, int count) {
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        pool.setMaxRecycledViews(VIEW_TYPE_USER, Math.max(DEFAULT_MAX_POOLED_VIEWS, count));
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(recyclerView.getContext());
+        for (int i = 0; i < count; i++) {
+            inflater.inflate(R.layout.item_user, recyclerView, (view, resid, parent) -> {
+                ItemUserBinding binding = DataBindingUtil.bind(view);
+                if (binding == null) {
+                    return;
+                }
+                // createViewHolder() takes the queued row and tags the holder with its view type
+                preInflatedRows.add(binding);
+                pool.putRecycledView(createViewHolder(recyclerView, VIEW_TYPE_USER));
+            });
+        }
+    }
+
+    /**
+     * Binds the precomputed display model and applies it immediately
+     * Without executePendingBindings() data binding would defer the update to the next
+     * frame, so a freshly bound row could be measured and drawn with stale text.
+     */
     @Override
     public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        if (users != null && position >= 0 && position < users.size()) {
-            User currentUser = users.get(position);
-            holder.itemUserBinding.setUser(currentUser);
+        List<UserItem> items = differ.getCurrentItems();
+        if (position >= 0 && position < items.size()) {
+            UserItem item = items.get(position);
+            holder.itemUserBinding.setItem(item);
+            holder.itemUserBinding.executePendingBindings();
+            bindAvatar(holder, item.getAvatarUrl());
+            maybeRequestMore(position);
+        }
+    }
+
+    /**
+     * Shows the row's avatar, loading it unless the row already shows or loads that one
+     * An avatar in memory is set before this returns; otherwise the placeholder shows
+     * until it arrives.
+     */
+    private void bindAvatar(UserViewHolder holder, @Nullable String url) {
+        if (avatarLoader == null || url == null) {
+            holder.clearAvatar();
+            return;
+        }
+        if (url.equals(holder.avatarUrl)
+                && (holder.avatarShown || holder.avatarRequest != null && !holder.avatarRequest.isFinished())) {
+            return;
         }
+        holder.clearAvatar();
+        holder.avatarUrl = url;
+        holder.avatarRequest = avatarLoader.load(url, avatarSizePx, bitmap -> {
+            holder.itemUserBinding.avatar.setImageBitmap(bitmap);
+            holder.avatarShown = true;
+        });
     }
 
+    /**
+     * Stops loading the avatar of a row that scrolled away, so its download and decode do not
+     * delay the rows now on screen
+     */
     @Override
-    public int getItemCount() {
-        if (users != null) {
-            return users.size();
-        } else {
-            return 0;
+    public void onViewRecycled(@NonNull UserViewHolder holder) {
+        holder.clearAvatar();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        if (avatarLoader != null) {
+            recyclerView.addOnScrollListener(avatarPrefetcher);
         }
     }
 
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(avatarPrefetcher);
+    }
+
     /**
-     * Updates the user list using DiffUtil for efficient updates (2025 best practice)
-     * Only animates and updates changed items instead of refreshing the entire list
+     * Prefetches the avatars of the rows about to scroll into view
+     * Runs once per newly revealed row, so a fling does not repeat it every frame.
      */
-    public void setUserList(ArrayList<User> newUsers) {
-        if (users == null) {
-            users = new ArrayList<>();
-            if (newUsers != null) {
-                users.addAll(newUsers);
+    private void prefetchAvatars(RecyclerView recyclerView, int dy) {
+        if (avatarLoader == null || dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int edge = dy > 0 ? layoutManager.findLastVisibleItemPosition() : layoutManager.findFirstVisibleItemPosition();
+        if (edge == RecyclerView.NO_POSITION || edge == avatarPrefetchedFrom) {
+            return;
+        }
+        avatarPrefetchedFrom = edge;
+        int step = dy > 0 ? 1 : -1;
+        List<UserItem> items = differ.getCurrentItems();
+        for (int i = 1; i <= AVATAR_PREFETCH_ROWS; i++) {
+            int position = edge + step * i;
+            if (position < 0 || position >= items.size()) {
+                break;
             }
-            notifyItemRangeInserted(0, users.size());
-        } else {
-            UserDiffCallback diffCallback = new UserDiffCallback(users, newUsers);
-            DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(diffCallback);
-            users.clear();
-            if (newUsers != null) {
-                users.addAll(newUsers);
+            String url = items.get(position).getAvatarUrl();
+            if (url != null) {
+                avatarLoader.prefetch(url, avatarSizePx);
             }
-            diffResult.dispatchUpdatesTo(this);
         }
     }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentItems().get(position).getId();
+    }
+
+    /**
+     * Asks for the next page once per list size, ahead of the user reaching the end
+     */
+    private void maybeRequestMore(int position) {
+        int itemCount = getItemCount();
+        if (loadMoreListener != null
+                && position >= itemCount - prefetchDistance
+                && loadMoreRequestedAt != itemCount) {
+            loadMoreRequestedAt = itemCount;
+            loadMoreListener.onLoadMore();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Updates the user list using DiffUtil for efficient updates (2025 best practice)
+     * The diff runs off the main thread; a newer list submitted while a diff is running
+     * supersedes it, so only the latest result is dispatched to the RecyclerView.
+     * A delta list derived from the current list skips the diff and notifies exact ranges.
+     * The submitted list must not be modified afterwards.
+     */
+    public void setUserList(List<User> newUsers) {
+        differ.submitList(newUsers);
+    }
+
     public User getCurrentItemAt(int position) {
-        if (users != null && position >= 0 && position < users.size()) {
+        List<User> users = differ.getCurrentList();
+        if (position >= 0 && position < users.size()) {
             return users.get(position);
         }
         return null;
@@ -81,6 +242,10 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
     public class UserViewHolder extends RecyclerView.ViewHolder {
 
         private ItemUserBinding itemUserBinding;
+        /** Avatar shown or being loaded, null when showing the placeholder */
+        private String avatarUrl;
+        private ImageLoader<Bitmap>.LoadRequest avatarRequest;
+        private boolean avatarShown;
 
         public UserViewHolder(@NonNull ItemUserBinding itemUserBinding) {
             super(itemUserBinding.getRoot());
@@ -95,6 +260,18 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
                 }
             });
         }
+
+        private void clearAvatar() {
+            if (avatarRequest != null) {
+                avatarRequest.cancel();
+                avatarRequest = null;
+            }
+            if (avatarUrl != null) {
+                itemUserBinding.avatar.setImageDrawable(null);
+                avatarUrl = null;
+                avatarShown = false;
+            }
+        }
     }
 
     public interface OnItemClickListener {
@@ -104,4 +281,19 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
     public void setOnItemClickListener(OnItemClickListener listener) {
         this.listener = listener;
     }
+
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    /**
+     * Sets the callback invoked when binding comes within the prefetch distance of the end
+     */
+    public void setOnLoadMoreListener(OnLoadMoreListener loadMoreListener) {
+        this.loadMoreListener = loadMoreListener;
+    }
+
+    public void setPrefetchDistance(int prefetchDistance) {
+        this.prefetchDistance = prefetchDistance;
+    }
 }
@@ -40,17 +40,7 @@ public class UserDiffCallback extends DiffUtil.Callback {
     public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
         User oldUser = oldList.get(oldItemPosition);
         User newUser = newList.get(newItemPosition);
-        return oldUser != null && newUser != null
-                && oldUser.getId() == newUser.getId()
-                && equals(oldUser.getName(), newUser.getName())
-                && equals(oldUser.getEmail(), newUser.getEmail())
-                && equals(oldUser.getUsername(), newUser.getUsername());
-    }
-
-    private boolean equals(String str1, String str2) {
-        if (str1 == null && str2 == null) return true;
-        if (str1 == null || str2 == null) return false;
-        return str1.equals(str2);
+        return oldUser != null && oldUser.hasSameContent(newUser);
     }
 }
 
@@ -0,0 +1,170 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserItem;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.DeltaList;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+
+/**
+ * Keeps the adapter's current user list and dispatches the updates for each new list
+ * Works like AsyncListDiffer, diffing off the main thread and only dispatching the latest
+ * submitted list, but a {@link DeltaList} derived from the current list is applied by
+ * replaying its recorded changes, without a diff.
+ *
+ * Alongside the users it keeps their {@link UserItem} display models. These are built on
+ * the diff thread, for a delta only for its inserted and changed rows; the main thread
+ * only swaps in the finished list and dispatches the updates.
+ *
+ * When the diff executor's queue is full, the list is replaced on the calling thread
+ * without animations instead.
+ */
+public final class UserListDiffer {
+    private static final String TAG = "UserListDiffer";
+    private static final InstrumentedExecutor DIFF_EXECUTOR = new InstrumentedExecutor("user-diff", 1, 64);
+
+    private final ListUpdateCallback updateCallback;
+    private final Executor diffExecutor;
+    private final Executor mainThreadExecutor;
+    private List<User> currentList = Collections.emptyList();
+    private List<UserItem> currentItems = Collections.emptyList();
+    private int submitGeneration;
+
+    public UserListDiffer(@NonNull RecyclerView.Adapter<?> adapter) {
+        this(new AdapterListUpdateCallback(adapter), DIFF_EXECUTOR, new Handler(Looper.getMainLooper())::post);
+    }
+
+    /**
+     * @param diffExecutor       Computes diffs and builds display models
+     * @param mainThreadExecutor Dispatches the results, normally the main thread
+     */
+    UserListDiffer(@NonNull ListUpdateCallback updateCallback, @NonNull Executor diffExecutor,
+                   @NonNull Executor mainThreadExecutor) {
+        this.updateCallback = updateCallback;
+        this.diffExecutor = diffExecutor;
+        this.mainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * Returns the list currently shown
+     */
+    @NonNull
+    public List<User> getCurrentList() {
+        return currentList;
+    }
+
+    /**
+     * Returns the display models of the current list, position for position
+     */
+    @NonNull
+    public List<UserItem> getCurrentItems() {
+        return currentItems;
+    }
+
+    /**
+     * Replaces the list, dispatching the updates once they are known
+     * The submitted list must not be modified afterwards.
+     */
+    @MainThread
+    public void submitList(List<User> newList) {
+        List<User> oldList = currentList;
+        if (newList == oldList) {
+            return;
+        }
+        int generation = ++submitGeneration;
+
+        if (newList == null || newList.isEmpty()) {
+            currentList = Collections.emptyList();
+            currentItems = Collections.emptyList();
+            if (!oldList.isEmpty()) {
+                updateCallback.onRemoved(0, oldList.size());
+            }
+            return;
+        }
+
+        if (newList instanceof DeltaList && ((DeltaList<User>) newList).isBasedOn(oldList)) {
+            DeltaList<User> delta = (DeltaList<User>) newList;
+            List<UserItem> oldItems = currentItems;
+            diffInBackground(newList, () -> {
+                List<UserItem> items = applyChanges(oldItems, delta);
+                mainThreadExecutor.execute(() -> {
+                    if (generation != submitGeneration) {
+                        return;
+                    }
+                    currentList = newList;
+                    currentItems = items;
+                    delta.getChanges().dispatchTo(updateCallback);
+                });
+            });
+            return;
+        }
+
+        diffInBackground(newList, () -> {
+            List<UserItem> items = UserItem.of(newList);
+            DiffUtil.DiffResult result = oldList.isEmpty()
+                    ? null
+                    : DiffUtil.calculateDiff(new UserDiffCallback(oldList, newList));
+            mainThreadExecutor.execute(() -> {
+                if (generation != submitGeneration) {
+                    return;
+                }
+                currentList = newList;
+                currentItems = items;
+                if (result == null) {
+                    updateCallback.onInserted(0, newList.size());
+                } else {
+                    result.dispatchUpdatesTo(updateCallback);
+                }
+            });
+        });
+    }
+
+    /**
+     * Runs the diff task, or replaces the list right away when the diff executor rejects it
+     */
+    @MainThread
+    private void diffInBackground(List<User> newList, Runnable task) {
+        try {
+            diffExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Diff executor is full, replacing the list without a diff", e);
+            // Outdates any diff still queued, as a newer submission would
+            submitGeneration++;
+            List<User> oldList = currentList;
+            currentList = newList;
+            currentItems = UserItem.of(newList);
+            if (!oldList.isEmpty()) {
+                updateCallback.onRemoved(0, oldList.size());
+            }
+            updateCallback.onInserted(0, newList.size());
+        }
+    }
+
+    /**
+     * Returns the display models for a delta, building them only for inserted and changed rows
+     */
+    private static List<UserItem> applyChanges(List<UserItem> oldItems, DeltaList<User> delta) {
+        int[] sources = delta.getChanges().getSourcePositions(oldItems.size());
+        UserItem[] items = new UserItem[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            items[i] = sources[i] >= 0 ? oldItems.get(sources[i]) : UserItem.of(delta.get(i));
+        }
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+}
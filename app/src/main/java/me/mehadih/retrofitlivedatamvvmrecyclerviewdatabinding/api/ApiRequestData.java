@@ -2,15 +2,65 @@ package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
 
 import java.util.List;
 
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Album;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Post;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Todo;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * API interface for Retrofit
  * Using Call for now, can be converted to suspend functions when migrating to Kotlin
  */
 public interface ApiRequestData {
+    /** Prefer the compact protobuf encoding of user lists, falling back to JSON */
+    String ACCEPT_USERS = "Accept: " + UserProtobufFormat.MEDIA_TYPE + ", application/json;q=0.9";
+
+    /**
+     * Fetches all users, left unconverted so the body can be parsed incrementally
+     * Always revalidated with the server, which answers 304 when the cached copy is current
+     */
+    @Streaming
+    @Headers({"Cache-Control: no-cache", ACCEPT_USERS})
+    @GET("users")
+    Call<ResponseBody> streamUsers();
+
+    /**
+     * Fetches a single page of users (1-based page index)
+     */
+    @Headers(ACCEPT_USERS)
     @GET("users")
-    Call<List<User>> getUsers();
+    Call<List<User>> getUsersPage(@Query("_page") int page, @Query("_limit") int limit);
+
+    /**
+     * Fetches the users added, modified or deleted after the given version
+     * A version of 0 asks for the full collection
+     */
+    @Headers("Cache-Control: no-cache")
+    @GET("users/changes")
+    Call<UserChanges> getUserChanges(@Query("since") long sinceVersion);
+
+    /**
+     * Fetches the posts of every given user; the ids are sent as repeated userId parameters
+     */
+    @GET("posts")
+    Call<List<Post>> getPosts(@Query("userId") List<Integer> userIds);
+
+    /**
+     * Fetches the todos of every given user
+     */
+    @GET("todos")
+    Call<List<Todo>> getTodos(@Query("userId") List<Integer> userIds);
+
+    /**
+     * Fetches the albums of every given user
+     */
+    @GET("albums")
+    Call<List<Album>> getAlbums(@Query("userId") List<Integer> userIds);
 }
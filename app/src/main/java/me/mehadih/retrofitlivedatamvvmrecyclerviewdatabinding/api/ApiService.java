@@ -2,71 +2,454 @@ package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
 
 import android.util.Log;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Album;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Post;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Todo;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserResources;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.ConcurrencyLimiter;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.SingleFlight;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
 import retrofit2.Response;
 
 /**
  * API Service wrapper that provides async operations with proper error handling
  * Uses ExecutorService for background operations (2025 best practice for Java)
+ * Results are delivered as CompletableFutures so callers can chain on completion
+ * instead of parking a thread in Future.get().
+ *
+ * Identical requests are single-flighted: a call made while the same request is
+ * already running shares its Future instead of issuing another HTTP call.
+ *
+ * Failed calls are retried according to a RetryPolicy, and a CircuitBreaker makes
+ * calls fail fast while the backend keeps failing, so callers can fall back to cached
+ * data immediately instead of waiting on timeouts. Every endpoint (URL path) has its
+ * own policy and breaker, so a failing resource lookup can neither open the breaker
+ * for the user list nor spend its retry budget. Backoffs are timed by a scheduler
+ * thread and the retry runs on the executor again, so no IO thread sits out a backoff.
+ *
+ * Streamed user lists are decoded by the registered {@link WireFormat} matching the
+ * response's Content-Type, as {@link NegotiatingConverterFactory} does for converted
+ * responses, and parsed as JSON when none matches.
  */
 public class ApiService {
     private static final String TAG = "ApiService";
+    /** Users parsed before the first progress report of a streamed response */
+    public static final int STREAM_FIRST_CHUNK_SIZE = 20;
+    private static final Type USER_LIST_TYPE = TypeToken.getParameterized(List.class, User.class).getType();
+    /** User ids per batched resource lookup, keeping the query string well under URL limits */
+    private static final int RESOURCE_BATCH_SIZE = 50;
+    /** Resource lookups running at once; leaves an IO thread free for the user list itself */
+    private static final int RESOURCE_MAX_CONCURRENCY = 3;
+    /** Only times backoffs; the retries themselves are handed back to the IO executor */
+    private static final ScheduledExecutorService RETRY_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "api-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
     private final ApiRequestData apiRequestData;
     private final ExecutorService executorService;
+    private final MetricsRegistry metrics;
+    private final Supplier<RetryPolicy> retryPolicyFactory;
+    private final Supplier<CircuitBreaker> circuitBreakerFactory;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrencyLimiter resourceLimiter;
+    private final UserStreamParser streamParser = new UserStreamParser(new Gson(), STREAM_FIRST_CHUNK_SIZE);
+    /** Registered formats that can read the users list */
+    private final List<WireFormat> userFormats = new ArrayList<>();
+    private final SingleFlight<String, Result<List<User>>> singleFlight = new SingleFlight<>();
+    private final SingleFlight<Long, Result<UserChanges>> changesFlight = new SingleFlight<>();
+    /** Whether a streamed users list was already delivered, making NotModified meaningful */
+    private volatile boolean streamedUsersDelivered;
 
-    public ApiService(ApiRequestData apiRequestData) {
+    /**
+     * @param formats Response encodings besides JSON, as registered with Retrofit
+     */
+    public ApiService(ApiRequestData apiRequestData, ExecutorService executorService, MetricsRegistry metrics,
+                      List<WireFormat> formats) {
+        this(apiRequestData, executorService, metrics, formats, RetryPolicy::defaults, CircuitBreaker::defaults);
+    }
+
+    /**
+     * @param formats               Response encodings besides JSON, as registered with Retrofit
+     * @param retryPolicyFactory    Creates the retry policy of each endpoint
+     * @param circuitBreakerFactory Creates the circuit breaker of each endpoint
+     */
+    public ApiService(ApiRequestData apiRequestData, ExecutorService executorService, MetricsRegistry metrics,
+                      List<WireFormat> formats, Supplier<RetryPolicy> retryPolicyFactory,
+                      Supplier<CircuitBreaker> circuitBreakerFactory) {
         this.apiRequestData = apiRequestData;
-        this.executorService = Executors.newCachedThreadPool();
+        this.executorService = executorService;
+        this.metrics = metrics;
+        this.retryPolicyFactory = retryPolicyFactory;
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.resourceLimiter = new ConcurrencyLimiter(executorService, RESOURCE_MAX_CONCURRENCY);
+        for (WireFormat format : formats) {
+            if (format.canRead(USER_LIST_TYPE)) {
+                userFormats.add(format);
+            }
+        }
     }
 
     /**
-     * Fetches users from the API asynchronously
-     * Wraps the result in a Result type for proper error handling
+     * Fetches users asynchronously, parsing the body as it arrives
+     * The listener is called on a background thread with the users parsed so far;
+     * callers that join a stream already in flight only receive the final result.
+     * When the HTTP cache confirms the previously delivered list is still current, the
+     * body is not parsed and {@link Result.NotModified} is returned instead.
      */
-    public Future<Result<List<User>>> getUsersAsync() {
-        return executorService.submit(() -> {
-            try {
-                Response<List<User>> response = apiRequestData.getUsers().execute();
-                
-                if (response.isSuccessful() && response.body() != null) {
-                    List<User> users = response.body();
-                    if (users.isEmpty()) {
-                        return new Result.Error<>("No users found");
-                    }
-                    return new Result.Success<>(users);
-                } else {
-                    String errorMsg = "HTTP " + response.code();
-                    if (response.errorBody() != null) {
-                        try {
-                            String errorBody = response.errorBody().string();
-                            if (errorBody != null && !errorBody.isEmpty()) {
-                                errorMsg += ": " + errorBody;
-                            }
-                        } catch (IOException e) {
-                            Log.w(TAG, "Failed to read error body", e);
-                        }
-                    }
-                    return new Result.Error<>(errorMsg);
+    public CompletableFuture<Result<List<User>>> getUsersStreamingAsync(UserStreamParser.ProgressListener listener) {
+        return singleFlight("users:stream", () -> executeWithRetry(apiRequestData.streamUsers())
+                .handle((response, error) -> error != null
+                        ? errorResult(error, "streaming users")
+                        : readStream(response, listener)));
+    }
+
+    /**
+     * Fetches a single page of users asynchronously
+     * An empty Success means the end of the collection was reached
+     */
+    public CompletableFuture<Result<List<User>>> getUsersPageAsync(int page, int pageSize) {
+        return singleFlight("users:page:" + page + ":" + pageSize,
+                () -> execute(apiRequestData.getUsersPage(page, pageSize), "fetching a page of users"));
+    }
+
+    /**
+     * Fetches the changes to the user collection since the given version asynchronously
+     */
+    public CompletableFuture<Result<UserChanges>> getUserChangesAsync(long sinceVersion) {
+        return changesFlight.executeAsync(sinceVersion, executorService,
+                () -> execute(apiRequestData.getUserChanges(sinceVersion), "fetching user changes"));
+    }
+
+    /**
+     * Fetches the posts, todos and albums of the given users asynchronously
+     * Ids are looked up in batches, and all batches of all three resources run
+     * concurrently (a few at a time), so the total latency follows the slowest batch
+     * rather than the sum of them. Failed batches leave their users incomplete in the
+     * returned UserResources; the result is only an Error when every lookup failed.
+     * Nothing in the app calls this yet; it is here for screens that enrich users.
+     */
+    public CompletableFuture<Result<UserResources>> getUserResourcesAsync(List<Integer> userIds) {
+        List<List<Integer>> batches = batch(userIds);
+        List<BatchCall<Post>> posts = new ArrayList<>(batches.size());
+        List<BatchCall<Todo>> todos = new ArrayList<>(batches.size());
+        List<BatchCall<Album>> albums = new ArrayList<>(batches.size());
+        for (List<Integer> ids : batches) {
+            posts.add(new BatchCall<>("posts", ids,
+                    resourceLimiter.submitAsync(() -> execute(apiRequestData.getPosts(ids), "fetching posts"))));
+            todos.add(new BatchCall<>("todos", ids,
+                    resourceLimiter.submitAsync(() -> execute(apiRequestData.getTodos(ids), "fetching todos"))));
+            albums.add(new BatchCall<>("albums", ids,
+                    resourceLimiter.submitAsync(() -> execute(apiRequestData.getAlbums(ids), "fetching albums"))));
+        }
+
+        List<CompletableFuture<?>> all = new ArrayList<>(batches.size() * 3);
+        for (int i = 0; i < batches.size(); i++) {
+            all.add(posts.get(i).future);
+            all.add(todos.get(i).future);
+            all.add(albums.get(i).future);
+        }
+        long start = System.nanoTime();
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> {
+            Set<Integer> incomplete = new HashSet<>();
+            List<String> errors = new ArrayList<>();
+            Map<Integer, List<Post>> postsByUser = collect(posts, Post::getUserId, incomplete, errors);
+            Map<Integer, List<Todo>> todosByUser = collect(todos, Todo::getUserId, incomplete, errors);
+            Map<Integer, List<Album>> albumsByUser = collect(albums, Album::getUserId, incomplete, errors);
+            metrics.recordSince("api.user_resources", start);
+            if (!all.isEmpty() && errors.size() == all.size()) {
+                return new Result.Error<>(errors.get(0));
+            }
+            return new Result.Success<>(new UserResources(postsByUser, todosByUser, albumsByUser,
+                    incomplete, errors));
+        });
+    }
+
+    /**
+     * Returns the number of HTTP calls actually issued
+     */
+    public long getExecutedCallCount() {
+        return singleFlight.getExecutedCount() + changesFlight.getExecutedCount();
+    }
+
+    /**
+     * Returns the number of calls that joined an identical request already in flight
+     */
+    public long getCoalescedCallCount() {
+        return singleFlight.getCoalescedCount() + changesFlight.getCoalescedCount();
+    }
+
+    private CompletableFuture<Result<List<User>>> singleFlight(String key,
+                                                              Supplier<CompletableFuture<Result<List<User>>>> request) {
+        return singleFlight.executeAsync(key, executorService, request);
+    }
+
+    /**
+     * Splits distinct user ids into batches of at most RESOURCE_BATCH_SIZE
+     */
+    private static List<List<Integer>> batch(List<Integer> userIds) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(userIds));
+        List<List<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += RESOURCE_BATCH_SIZE) {
+            batches.add(distinct.subList(from, Math.min(distinct.size(), from + RESOURCE_BATCH_SIZE)));
+        }
+        return batches;
+    }
+
+    /**
+     * Groups the items of successful batches by user and records the failed ones
+     */
+    private static <T> Map<Integer, List<T>> collect(List<BatchCall<T>> calls, ToIntFunction<T> userId,
+                                                     Set<Integer> incomplete, List<String> errors) {
+        Map<Integer, List<T>> byUser = new HashMap<>();
+        for (BatchCall<T> call : calls) {
+            Result<List<T>> result = call.future.isCompletedExceptionally()
+                    ? new Result.Error<>("Lookup was rejected")
+                    : call.future.join();
+            if (result instanceof Result.Success) {
+                for (T item : ((Result.Success<List<T>>) result).getData()) {
+                    byUser.computeIfAbsent(userId.applyAsInt(item), id -> new ArrayList<>()).add(item);
                 }
-            } catch (IOException e) {
-                Log.e(TAG, "Network error fetching users", e);
-                return new Result.Error<>(e);
-            } catch (Exception e) {
-                Log.e(TAG, "Error fetching users", e);
-                return new Result.Error<>(e);
+            } else {
+                String message = result instanceof Result.Error ? ((Result.Error<List<T>>) result).getMessage() : null;
+                errors.add(call.resource + " for " + call.userIds.size() + " users: " + message);
+                incomplete.addAll(call.userIds);
+            }
+        }
+        return byUser;
+    }
+
+    /**
+     * One batched lookup of a resource, with the user ids it covers
+     */
+    private static final class BatchCall<T> {
+        final String resource;
+        final List<Integer> userIds;
+        final CompletableFuture<Result<List<T>>> future;
+
+        BatchCall(String resource, List<Integer> userIds, CompletableFuture<Result<List<T>>> future) {
+            this.resource = resource;
+            this.userIds = userIds;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Parses a streamed users response, or returns NotModified when the delivered list is still current
+     */
+    private Result<List<User>> readStream(Response<ResponseBody> response, UserStreamParser.ProgressListener listener) {
+        try {
+            if (!response.isSuccessful() || response.body() == null) {
+                return new Result.Error<>(httpErrorMessage(response));
+            }
+            if (streamedUsersDelivered && isServedFromCache(response.raw())) {
+                response.body().close();
+                return new Result.NotModified<>();
+            }
+            List<User> users;
+            long parseStart = System.nanoTime();
+            try (ResponseBody body = response.body()) {
+                WireFormat format = NegotiatingConverterFactory.find(userFormats, body.contentType());
+                users = format != null
+                        ? format.readUsers(body, listener)
+                        : streamParser.parse(body.charStream(), listener);
+            }
+            metrics.recordSince("api.parse_users", parseStart);
+            if (users.isEmpty()) {
+                return new Result.Error<>("No users found");
+            }
+            streamedUsersDelivered = true;
+            return new Result.Success<>(users);
+        } catch (Exception e) {
+            return errorResult(e, "streaming users");
+        }
+    }
+
+    /**
+     * The retry policy and circuit breaker of one endpoint
+     */
+    private static final class Endpoint {
+        final RetryPolicy retryPolicy;
+        final CircuitBreaker circuitBreaker;
+
+        Endpoint(RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+            this.retryPolicy = retryPolicy;
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+
+    /**
+     * Executes a call and maps the response, HTTP errors and exceptions to a Result
+     * @param action What the call does, for log messages, e.g. "fetching posts"
+     */
+    private <T> CompletableFuture<Result<T>> execute(Call<T> call, String action) {
+        return executeWithRetry(call).handle((response, error) -> {
+            if (error != null) {
+                return errorResult(error, action);
+            }
+            if (response.isSuccessful() && response.body() != null) {
+                return new Result.Success<>(response.body());
+            } else {
+                return new Result.Error<>(httpErrorMessage(response));
             }
         });
     }
 
-    public void shutdown() {
-        executorService.shutdown();
+    /**
+     * Logs a failed call and wraps the cause in an Error
+     */
+    private static <T> Result<T> errorResult(Throwable error, String action) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CircuitBreaker.OpenException) {
+            Log.w(TAG, cause.getMessage());
+        } else if (cause instanceof IOException) {
+            Log.e(TAG, "Network error " + action, cause);
+        } else {
+            Log.e(TAG, "Error " + action, cause);
+        }
+        return new Result.Error<>(cause);
+    }
+
+    /**
+     * Executes a call, retrying network failures and retryable HTTP statuses
+     * The first attempt runs on the calling thread and each retry on a clone of the call,
+     * on the executor once its backoff has passed. Completes with
+     * {@link CircuitBreaker.OpenException} without making a request while the endpoint's
+     * breaker is open.
+     */
+    private <T> CompletableFuture<Response<T>> executeWithRetry(Call<T> call) {
+        Endpoint endpoint = endpoints.computeIfAbsent(call.request().url().encodedPath(),
+                path -> new Endpoint(retryPolicyFactory.get(), circuitBreakerFactory.get()));
+        endpoint.retryPolicy.onRequest();
+        CompletableFuture<Response<T>> result = new CompletableFuture<>();
+        attempt(endpoint, call, 1, result);
+        return result;
     }
-}
 
+    /**
+     * Makes one attempt, then completes the result or schedules the next attempt
+     */
+    private <T> void attempt(Endpoint endpoint, Call<T> call, int attempt, CompletableFuture<Response<T>> result) {
+        RetryPolicy retryPolicy = endpoint.retryPolicy;
+        CircuitBreaker circuitBreaker = endpoint.circuitBreaker;
+        try {
+            circuitBreaker.acquire();
+        } catch (CircuitBreaker.OpenException e) {
+            metrics.increment("api.circuit_open");
+            result.completeExceptionally(e);
+            return;
+        }
+        Call<T> attemptCall = attempt == 1 ? call : call.clone();
+        Response<T> response;
+        Long retryAfterMillis;
+        try {
+            response = attemptCall.execute();
+            if (!RetryPolicy.isRetryable(response.code())) {
+                circuitBreaker.onSuccess();
+                result.complete(response);
+                return;
+            }
+            circuitBreaker.onFailure();
+            retryAfterMillis = RetryPolicy.parseRetryAfterMillis(response.headers());
+        } catch (IOException e) {
+            circuitBreaker.onFailure();
+            long delay = retryPolicy.nextDelayMillis(attempt, null);
+            if (delay < 0) {
+                result.completeExceptionally(e);
+                return;
+            }
+            Log.w(TAG, "Attempt " + attempt + " failed, retrying in " + delay + " ms", e);
+            retryAfter(delay, endpoint, call, attempt + 1, result);
+            return;
+        } catch (RuntimeException e) {
+            // e.g. a converter rejecting the body; a half-open breaker must still hear back
+            circuitBreaker.onFailure();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        long delay = retryPolicy.nextDelayMillis(attempt, retryAfterMillis);
+        if (delay < 0) {
+            result.complete(response);
+            return;
+        }
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+        Log.w(TAG, "Attempt " + attempt + " got HTTP " + response.code() + ", retrying in " + delay + " ms");
+        retryAfter(delay, endpoint, call, attempt + 1, result);
+    }
+
+    /**
+     * Runs the next attempt on the executor once the backoff has passed
+     * A retry the executor rejects, e.g. after shutdown, fails the call instead.
+     */
+    private <T> void retryAfter(long delayMillis, Endpoint endpoint, Call<T> call, int nextAttempt,
+                                CompletableFuture<Response<T>> result) {
+        metrics.increment("api.retry");
+        RETRY_SCHEDULER.schedule(() -> {
+            try {
+                executorService.execute(() -> attempt(endpoint, call, nextAttempt, result));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns true when the body comes from the HTTP cache, either fresh or revalidated with a 304
+     */
+    private static boolean isServedFromCache(okhttp3.Response rawResponse) {
+        okhttp3.Response networkResponse = rawResponse.networkResponse();
+        return rawResponse.cacheResponse() != null
+                && (networkResponse == null || networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED);
+    }
+
+    /**
+     * Builds an error message from the HTTP status and error body
+     */
+    private String httpErrorMessage(Response<?> response) {
+        String errorMsg = "HTTP " + response.code();
+        if (response.errorBody() != null) {
+            try {
+                String errorBody = response.errorBody().string();
+                if (errorBody != null && !errorBody.isEmpty()) {
+                    errorMsg += ": " + errorBody;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read error body", e);
+            }
+        }
+        return errorMsg;
+    }
+}
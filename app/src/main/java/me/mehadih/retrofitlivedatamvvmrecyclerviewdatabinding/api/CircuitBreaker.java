@@ -0,0 +1,101 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails requests fast while the backend looks down
+ *
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects every
+ * request for the open period. The first request after that is let through as a probe
+ * (half-open): success closes the breaker, failure opens it again with a doubled period,
+ * up to {@code maxOpenMillis}.
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    /** Thrown instead of making a request while the breaker is open */
+    public static class OpenException extends IOException {
+        public OpenException(long retryInMillis) {
+            super("Server unavailable, retrying in " + TimeUnit.MILLISECONDS.toSeconds(retryInMillis + 999) + "s");
+        }
+    }
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxOpenMillis;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long currentOpenMillis;
+    private long openedAtNanos;
+
+    public CircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.currentOpenMillis = openMillis;
+    }
+
+    /**
+     * Opens after 5 consecutive failures, for 10 s at first and up to 2 minutes
+     */
+    public static CircuitBreaker defaults() {
+        return new CircuitBreaker(5, 10_000, 120_000);
+    }
+
+    /**
+     * Throws when the request must not be made; otherwise the caller reports its outcome
+     * with {@link #onSuccess()} or {@link #onFailure()}
+     */
+    public synchronized void acquire() throws OpenException {
+        if (state == State.CLOSED) {
+            return;
+        }
+        long openForMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAtNanos);
+        if (state == State.OPEN && openForMillis >= currentOpenMillis) {
+            Log.d(TAG, "Letting a probe request through");
+            state = State.HALF_OPEN;
+            return;
+        }
+        // Open, or half-open with the probe still in flight
+        throw new OpenException(Math.max(0, currentOpenMillis - openForMillis));
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            Log.d(TAG, "Closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        currentOpenMillis = openMillis;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            currentOpenMillis = Math.min(maxOpenMillis, currentOpenMillis * 2);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Returns true while requests are being rejected
+     */
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    private void open() {
+        Log.w(TAG, "Opened for " + currentOpenMillis + " ms after " + consecutiveFailures + " failures");
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+    }
+}
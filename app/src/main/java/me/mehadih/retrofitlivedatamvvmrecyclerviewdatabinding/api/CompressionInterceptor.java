@@ -0,0 +1,288 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Negotiates and decodes response compression, choosing the encoding from measured costs
+ *
+ * For every host and content type the interceptor keeps, per decoder, moving averages of
+ * the compression ratio and of the decode time per decoded byte, and for every host the
+ * receive time per wire byte. Each request advertises the single encoding expected to
+ * deliver the body fastest, i.e. with the lowest {@code ratio * receive time + decode time}
+ * per byte, or identity when no encoding beats sending the body uncompressed. The content
+ * type is predicted from the last response on the same path. Encodings without
+ * measurements are tried first, and every {@link #EXPLORE_EVERY}th request re-measures
+ * the encoding measured least recently, so the estimates follow changing links. An
+ * encoding the server answers uncompressed counts as saving nothing.
+ *
+ * Decoding happens as the body is read, so streamed bodies stay streamed. Per encoding,
+ * decode time is recorded as {@code compression.<encoding>.decode}, wire and decoded
+ * sizes as the {@code compression.<encoding>.wire_bytes} / {@code .decoded_bytes} counters,
+ * and the ratio of the latest body as the {@code compression.ratio.<encoding>} gauge.
+ *
+ * Install it with {@code addNetworkInterceptor}: only bodies actually received are
+ * measured, never cache hits, and the HTTP cache stores the decoded body. The gzip OkHttp
+ * asks for when the caller set no Accept-Encoding is replaced by the chosen encoding; any
+ * other Accept-Encoding is the caller's and left alone.
+ */
+public class CompressionInterceptor implements Interceptor {
+    private static final String IDENTITY = "identity";
+    /** What OkHttp's bridge sends when the request has no Accept-Encoding of its own */
+    private static final String DEFAULT_ACCEPT_ENCODING = "gzip";
+    private static final String UNKNOWN_CONTENT_TYPE = "*/*";
+    /** Requests between re-measurements of the stalest encoding */
+    static final int EXPLORE_EVERY = 16;
+    /** Weight of the newest sample in the moving averages */
+    private static final double SMOOTHING = 0.2;
+    /** Receive time per byte assumed before any body was timed, about 8 Mbit/s */
+    private static final double INITIAL_NANOS_PER_WIRE_BYTE = 1_000;
+    /** Bodies too small to time meaningfully do not update the estimates */
+    private static final long MIN_SAMPLE_BYTES = 1_024;
+
+    private final MetricsRegistry metrics;
+    private final ContentDecoder[] decoders;
+
+    // Guarded by this
+    /** Estimates by host and content type, e.g. "api.example.com application/json" */
+    private final Map<String, Profile> profiles = new HashMap<>();
+    /** Receive time per wire byte by host */
+    private final Map<String, Double> nanosPerWireByte = new HashMap<>();
+    /** Content type last received by host and path */
+    private final Map<String, String> contentTypes = new HashMap<>();
+
+    /**
+     * @param decoders The supported encodings, most preferred first while unmeasured
+     */
+    public CompressionInterceptor(@NonNull MetricsRegistry metrics, @NonNull ContentDecoder... decoders) {
+        this.metrics = metrics;
+        this.decoders = decoders.clone();
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String acceptEncoding = request.header("Accept-Encoding");
+        if (acceptEncoding != null && !DEFAULT_ACCEPT_ENCODING.equals(acceptEncoding) || request.header("Range") != null) {
+            return chain.proceed(request);
+        }
+
+        String host = request.url().host();
+        String route = host + request.url().encodedPath();
+        String encoding = chooseEncoding(host, route);
+        Response response = chain.proceed(request.newBuilder().header("Accept-Encoding", encoding).build());
+        ResponseBody body = response.body();
+        if (body == null || response.code() == 204 || response.code() == 304 || "HEAD".equals(request.method())) {
+            return response;
+        }
+
+        Profile profile = onResponse(host, route, body.contentType());
+        String contentEncoding = response.header("Content-Encoding");
+        Estimate estimate = contentEncoding != null ? profile.estimates.get(contentEncoding.trim().toLowerCase()) : null;
+        if (contentEncoding != null && estimate == null && !IDENTITY.equalsIgnoreCase(contentEncoding)) {
+            // Not ours to decode; the caller sees the encoded body as OkHttp would
+            return response;
+        }
+
+        // Cached under the request the caller made, which any decoded body satisfies
+        TimedSource wire = new TimedSource(body.source());
+        if (estimate == null) {
+            TimedSource received = new TimedSource(wire);
+            received.onExhausted = () -> onReceived(host, profile, profile.estimates.get(encoding), wire);
+            return response.newBuilder()
+                    .request(request)
+                    .body(ResponseBody.create(Okio.buffer(received), body.contentType(), body.contentLength()))
+                    .build();
+        }
+        TimedSource decoded = new TimedSource(estimate.decoder.decode(wire));
+        decoded.onExhausted = () -> onDecoded(host, profile, estimate, wire, decoded);
+        return response.newBuilder()
+                .request(request)
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(Okio.buffer(decoded), body.contentType(), -1))
+                .build();
+    }
+
+    /**
+     * Returns the Accept-Encoding value for the next request to the host and path
+     */
+    synchronized String chooseEncoding(String host, String route) {
+        String contentType = contentTypes.get(route);
+        Profile profile = profile(host, contentType != null ? contentType : UNKNOWN_CONTENT_TYPE);
+        double linkNanosPerByte = linkNanosPerByte(host);
+        profile.requestCount++;
+        Estimate best = null;
+        Estimate stalest = null;
+        for (Estimate estimate : profile.estimates.values()) {
+            if (estimate.samples == 0) {
+                return estimate.decoder.getEncoding();
+            }
+            if (best == null || estimate.costNanosPerByte(linkNanosPerByte) < best.costNanosPerByte(linkNanosPerByte)) {
+                best = estimate;
+            }
+            if (stalest == null || estimate.lastMeasured < stalest.lastMeasured) {
+                stalest = estimate;
+            }
+        }
+        if (best == null) {
+            return IDENTITY;
+        }
+        if (profile.requestCount % EXPLORE_EVERY == 0) {
+            return stalest.decoder.getEncoding();
+        }
+        return best.costNanosPerByte(linkNanosPerByte) < linkNanosPerByte ? best.decoder.getEncoding() : IDENTITY;
+    }
+
+    /**
+     * Remembers the content type served for the path and returns the profile to measure into
+     */
+    private synchronized Profile onResponse(String host, String route, @Nullable MediaType mediaType) {
+        String contentType = mediaType != null ? mediaType.type() + "/" + mediaType.subtype() : UNKNOWN_CONTENT_TYPE;
+        contentTypes.put(route, contentType);
+        return profile(host, contentType);
+    }
+
+    private Profile profile(String host, String contentType) {
+        return profiles.computeIfAbsent(host + " " + contentType, key -> new Profile(decoders));
+    }
+
+    private double linkNanosPerByte(String host) {
+        Double nanos = nanosPerWireByte.get(host);
+        return nanos != null ? nanos : INITIAL_NANOS_PER_WIRE_BYTE;
+    }
+
+    private void onDecoded(String host, Profile profile, Estimate estimate, TimedSource wire, TimedSource decoded) {
+        long decodeNanos = Math.max(0, decoded.nanos - wire.nanos);
+        String prefix = "compression." + estimate.decoder.getEncoding();
+        metrics.histogram(prefix + ".decode").recordNanos(decodeNanos);
+        metrics.add(prefix + ".wire_bytes", wire.bytes);
+        metrics.add(prefix + ".decoded_bytes", decoded.bytes);
+        if (decoded.bytes > 0) {
+            metrics.set("compression.ratio." + estimate.decoder.getEncoding(), (double) wire.bytes / decoded.bytes);
+        }
+        if (decoded.bytes < MIN_SAMPLE_BYTES) {
+            return;
+        }
+        synchronized (this) {
+            estimate.record((double) wire.bytes / decoded.bytes, (double) decodeNanos / decoded.bytes,
+                    profile.requestCount);
+            updateLink(host, wire);
+        }
+    }
+
+    /**
+     * Records an uncompressed body; when compression was asked for, the server declined it
+     */
+    private void onReceived(String host, Profile profile, @Nullable Estimate requested, TimedSource wire) {
+        metrics.add("compression.identity.wire_bytes", wire.bytes);
+        if (wire.bytes < MIN_SAMPLE_BYTES) {
+            return;
+        }
+        synchronized (this) {
+            if (requested != null) {
+                // Nothing saved, so the encoding only wins again if this changes
+                requested.record(1, 0, profile.requestCount);
+            }
+            updateLink(host, wire);
+        }
+    }
+
+    private void updateLink(String host, TimedSource wire) {
+        double current = linkNanosPerByte(host);
+        nanosPerWireByte.put(host, current + SMOOTHING * ((double) wire.nanos / wire.bytes - current));
+    }
+
+    /**
+     * Estimates for one host and content type, guarded by the interceptor
+     */
+    private static final class Profile {
+        final Map<String, Estimate> estimates = new LinkedHashMap<>();
+        long requestCount;
+
+        Profile(ContentDecoder[] decoders) {
+            for (ContentDecoder decoder : decoders) {
+                estimates.put(decoder.getEncoding(), new Estimate(decoder));
+            }
+        }
+    }
+
+    /**
+     * Moving averages for one encoding, guarded by the interceptor
+     */
+    private static final class Estimate {
+        final ContentDecoder decoder;
+        double ratio = 1;
+        double decodeNanosPerByte;
+        int samples;
+        long lastMeasured;
+
+        Estimate(ContentDecoder decoder) {
+            this.decoder = decoder;
+        }
+
+        double costNanosPerByte(double nanosPerWireByte) {
+            return ratio * nanosPerWireByte + decodeNanosPerByte;
+        }
+
+        void record(double sampleRatio, double sampleDecodeNanosPerByte, long now) {
+            if (samples++ == 0) {
+                ratio = sampleRatio;
+                decodeNanosPerByte = sampleDecodeNanosPerByte;
+            } else {
+                ratio += SMOOTHING * (sampleRatio - ratio);
+                decodeNanosPerByte += SMOOTHING * (sampleDecodeNanosPerByte - decodeNanosPerByte);
+            }
+            lastMeasured = now;
+        }
+    }
+
+    /**
+     * Counts the bytes read through it and the time spent reading; reports once when exhausted
+     * Timing the wire source and the decoded source around it separates receive from decode time.
+     */
+    private static final class TimedSource extends ForwardingSource {
+        @Nullable
+        Runnable onExhausted;
+        long bytes;
+        long nanos;
+        private boolean reported;
+
+        TimedSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            long read = super.read(sink, byteCount);
+            nanos += System.nanoTime() - start;
+            if (read == -1) {
+                if (onExhausted != null && !reported) {
+                    reported = true;
+                    onExhausted.run();
+                }
+            } else {
+                bytes += read;
+            }
+            return read;
+        }
+    }
+}
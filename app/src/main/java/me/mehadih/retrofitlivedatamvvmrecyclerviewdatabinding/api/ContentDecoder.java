@@ -0,0 +1,56 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+
+import org.brotli.dec.BrotliInputStream;
+
+import java.io.IOException;
+
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Decodes one HTTP Content-Encoding for {@link CompressionInterceptor}
+ */
+public interface ContentDecoder {
+    ContentDecoder GZIP = new ContentDecoder() {
+        @NonNull
+        @Override
+        public String getEncoding() {
+            return "gzip";
+        }
+
+        @NonNull
+        @Override
+        public Source decode(@NonNull Source source) {
+            return new GzipSource(source);
+        }
+    };
+
+    ContentDecoder BROTLI = new ContentDecoder() {
+        @NonNull
+        @Override
+        public String getEncoding() {
+            return "br";
+        }
+
+        @NonNull
+        @Override
+        public Source decode(@NonNull Source source) throws IOException {
+            return Okio.source(new BrotliInputStream(Okio.buffer(source).inputStream()));
+        }
+    };
+
+    /**
+     * Returns the Content-Encoding token, e.g. {@code br}
+     */
+    @NonNull
+    String getEncoding();
+
+    /**
+     * Wraps the encoded body so reading it yields the decoded bytes
+     */
+    @NonNull
+    Source decode(@NonNull Source source) throws IOException;
+}
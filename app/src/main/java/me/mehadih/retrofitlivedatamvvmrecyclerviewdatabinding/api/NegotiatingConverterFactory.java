@@ -0,0 +1,89 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Converts response bodies according to the format the server chose
+ *
+ * Endpoints advertise the extra formats they accept in their Accept header. Each response
+ * is decoded by the {@link WireFormat} matching its Content-Type, and by the fallback
+ * factory (JSON) when none matches, so servers that ignore the Accept header keep working.
+ * Request bodies always use the fallback factory.
+ */
+public final class NegotiatingConverterFactory extends Converter.Factory {
+    private final Converter.Factory fallback;
+    private final WireFormat[] formats;
+
+    public NegotiatingConverterFactory(@NonNull Converter.Factory fallback, @NonNull WireFormat... formats) {
+        this.fallback = fallback;
+        this.formats = formats;
+    }
+
+    public NegotiatingConverterFactory(@NonNull Converter.Factory fallback, @NonNull List<WireFormat> formats) {
+        this(fallback, formats.toArray(new WireFormat[0]));
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type, @NonNull Annotation[] annotations,
+                                                            @NonNull Retrofit retrofit) {
+        Converter<ResponseBody, ?> fallbackConverter = fallback.responseBodyConverter(type, annotations, retrofit);
+        List<WireFormat> readable = new ArrayList<>();
+        for (WireFormat format : formats) {
+            if (format.canRead(type)) {
+                readable.add(format);
+            }
+        }
+        if (readable.isEmpty() || fallbackConverter == null) {
+            return fallbackConverter;
+        }
+        return body -> {
+            WireFormat format = find(readable, body.contentType());
+            if (format == null) {
+                return fallbackConverter.convert(body);
+            }
+            try {
+                return format.read(body);
+            } finally {
+                body.close();
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@NonNull Type type, @NonNull Annotation[] parameterAnnotations,
+                                                          @NonNull Annotation[] methodAnnotations,
+                                                          @NonNull Retrofit retrofit) {
+        return fallback.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    /**
+     * Returns the format sent with the given Content-Type, or null
+     */
+    @Nullable
+    public static WireFormat find(List<WireFormat> formats, @Nullable MediaType contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.type() + "/" + contentType.subtype();
+        for (WireFormat format : formats) {
+            if (format.getMediaType().equalsIgnoreCase(mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
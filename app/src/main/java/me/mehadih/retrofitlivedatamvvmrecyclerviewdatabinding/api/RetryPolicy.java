@@ -0,0 +1,126 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.Nullable;
+
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.Headers;
+
+/**
+ * When and how long to wait before retrying a failed request
+ *
+ * Delays grow exponentially from the base delay up to the maximum, with full jitter (a
+ * random delay between zero and the exponential bound) so clients that failed together do
+ * not retry together. A server-sent Retry-After is honored as a lower bound; when it asks
+ * for more than the maximum delay the request is not retried at all.
+ *
+ * Retries also draw from a shared budget: every request adds {@code budgetRatio} tokens,
+ * up to {@code maxBudget}, and every retry spends one. While the backend keeps failing, the
+ * retries therefore add at most that fraction of extra load instead of multiplying it.
+ */
+public class RetryPolicy {
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final double budgetRatio;
+    private final double maxBudget;
+    // Guarded by this
+    private double budget;
+
+    /**
+     * @param maxAttempts     Attempts per request, including the first one
+     * @param baseDelayMillis Upper bound of the first backoff
+     * @param maxDelayMillis  Cap on any single backoff, including Retry-After
+     * @param budgetRatio     Retry tokens earned per request
+     * @param maxBudget       Tokens that can be saved up, which is also the initial budget
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                       double budgetRatio, double maxBudget) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budgetRatio = budgetRatio;
+        this.maxBudget = maxBudget;
+        this.budget = maxBudget;
+    }
+
+    /**
+     * Three attempts, 500 ms to 5 s backoff, retries limited to about 10% of requests
+     */
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(3, 500, 5_000, 0.1, 10);
+    }
+
+    /**
+     * Never retries
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0, 0, 0, 0);
+    }
+
+    /**
+     * Returns true for statuses worth retrying: timeouts, throttling and server errors
+     */
+    public static boolean isRetryable(int httpCode) {
+        return httpCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                || httpCode == HTTP_TOO_MANY_REQUESTS
+                || httpCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || httpCode == HttpURLConnection.HTTP_BAD_GATEWAY
+                || httpCode == HttpURLConnection.HTTP_UNAVAILABLE
+                || httpCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Credits the retry budget for a new request
+     */
+    public synchronized void onRequest() {
+        budget = Math.min(maxBudget, budget + budgetRatio);
+    }
+
+    /**
+     * Returns the delay before the next attempt, or -1 when the request should not be retried
+     * Spends one budget token when a retry is granted.
+     *
+     * @param failedAttempts   Attempts made so far, at least 1
+     * @param retryAfterMillis Delay requested by the server, or null
+     */
+    public long nextDelayMillis(int failedAttempts, @Nullable Long retryAfterMillis) {
+        if (failedAttempts >= maxAttempts
+                || retryAfterMillis != null && retryAfterMillis > maxDelayMillis
+                || !tryAcquireRetry()) {
+            return -1;
+        }
+        long bound = Math.min(maxDelayMillis, baseDelayMillis << Math.min(failedAttempts - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(bound + 1);
+        return retryAfterMillis != null ? Math.max(delay, retryAfterMillis) : delay;
+    }
+
+    /**
+     * Parses a Retry-After header given in seconds or as an HTTP date
+     */
+    @Nullable
+    public static Long parseRetryAfterMillis(Headers headers) {
+        String value = headers.get("Retry-After");
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1_000);
+        } catch (NumberFormatException e) {
+            Date date = headers.getDate("Retry-After");
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : null;
+        }
+    }
+
+    private synchronized boolean tryAcquireRetry() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+}
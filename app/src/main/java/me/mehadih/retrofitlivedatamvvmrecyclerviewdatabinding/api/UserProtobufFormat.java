@@ -0,0 +1,224 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+
+/**
+ * Protocol Buffers encoding of the users list
+ *
+ * The payload follows this schema, so any protobuf library can produce it server-side:
+ * <pre>
+ * message UserList { repeated User users = 1; }
+ * message User { int32 id = 1; string name = 2; string username = 3; string email = 4; }
+ * </pre>
+ * Only this one message is needed, so it is read and written by hand on top of Okio
+ * rather than through generated code. Unknown fields are skipped, so the server can
+ * add fields without breaking older clients.
+ *
+ * Like {@link UserStreamParser}, users are read one at a time from the response stream
+ * and progress is reported after the first chunk and then every time the count doubles.
+ */
+public final class UserProtobufFormat implements WireFormat {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private static final int FIELD_USERS = 1;
+    private static final int FIELD_ID = 1;
+    private static final int FIELD_NAME = 2;
+    private static final int FIELD_USERNAME = 3;
+    private static final int FIELD_EMAIL = 4;
+
+    private final int firstChunkSize;
+
+    public UserProtobufFormat(int firstChunkSize) {
+        this.firstChunkSize = Math.max(1, firstChunkSize);
+    }
+
+    @NonNull
+    @Override
+    public String getMediaType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public boolean canRead(@NonNull Type type) {
+        return type instanceof ParameterizedType
+                && ((ParameterizedType) type).getRawType() == List.class
+                && ((ParameterizedType) type).getActualTypeArguments()[0] == User.class;
+    }
+
+    @NonNull
+    @Override
+    public Object read(@NonNull ResponseBody body) throws IOException {
+        return parse(body.source(), null);
+    }
+
+    @NonNull
+    @Override
+    public List<User> readUsers(@NonNull ResponseBody body,
+                                @Nullable UserStreamParser.ProgressListener listener) throws IOException {
+        return parse(body.source(), listener);
+    }
+
+    /**
+     * Parses a UserList message until the source is exhausted
+     */
+    @NonNull
+    public List<User> parse(@NonNull BufferedSource source,
+                            @Nullable UserStreamParser.ProgressListener listener) throws IOException {
+        List<User> users = new ArrayList<>();
+        List<User> usersView = Collections.unmodifiableList(users);
+        int nextReportAt = firstChunkSize;
+
+        while (!source.exhausted()) {
+            long tag = readVarint(source);
+            if ((int) (tag >>> 3) == FIELD_USERS && (int) (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                users.add(readUser(source, readVarint(source)));
+                if (listener != null && users.size() == nextReportAt) {
+                    listener.onProgress(usersView);
+                    nextReportAt *= 2;
+                }
+            } else {
+                skip(source, (int) (tag & 7));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Writes the users as a UserList message
+     */
+    public static void write(@NonNull List<User> users, @NonNull BufferedSink sink) throws IOException {
+        Buffer user = new Buffer();
+        for (User u : users) {
+            writeTag(user, FIELD_ID, WIRE_VARINT);
+            writeVarint(user, (long) u.getId());
+            writeString(user, FIELD_NAME, u.getName());
+            writeString(user, FIELD_USERNAME, u.getUsername());
+            writeString(user, FIELD_EMAIL, u.getEmail());
+
+            writeTag(sink, FIELD_USERS, WIRE_LENGTH_DELIMITED);
+            writeVarint(sink, user.size());
+            sink.writeAll(user);
+        }
+    }
+
+    private static User readUser(BufferedSource source, long length) throws IOException {
+        int id = 0;
+        String name = null;
+        String username = null;
+        String email = null;
+        long remaining = length;
+        while (remaining > 0) {
+            long tag = readVarint(source);
+            remaining -= varintSize(tag);
+            int wireType = (int) (tag & 7);
+            if (wireType == WIRE_LENGTH_DELIMITED) {
+                long size = readVarint(source);
+                remaining -= varintSize(size) + size;
+                int field = (int) (tag >>> 3);
+                if (field == FIELD_NAME) {
+                    name = source.readUtf8(size);
+                } else if (field == FIELD_USERNAME) {
+                    username = source.readUtf8(size);
+                } else if (field == FIELD_EMAIL) {
+                    email = source.readUtf8(size);
+                } else {
+                    source.skip(size);
+                }
+            } else if ((int) (tag >>> 3) == FIELD_ID && wireType == WIRE_VARINT) {
+                long value = readVarint(source);
+                remaining -= varintSize(value);
+                id = (int) value;
+            } else {
+                remaining -= skip(source, wireType);
+            }
+        }
+        if (remaining != 0) {
+            throw new ProtocolException("User message overran its length");
+        }
+        return new User(id, name, username, email);
+    }
+
+    /**
+     * Skips a field value of the given wire type and returns the bytes skipped
+     */
+    private static long skip(BufferedSource source, int wireType) throws IOException {
+        switch (wireType) {
+            case WIRE_VARINT:
+                return varintSize(readVarint(source));
+            case WIRE_FIXED64:
+                source.skip(8);
+                return 8;
+            case WIRE_LENGTH_DELIMITED:
+                long size = readVarint(source);
+                source.skip(size);
+                return varintSize(size) + size;
+            case WIRE_FIXED32:
+                source.skip(4);
+                return 4;
+            default:
+                throw new ProtocolException("Unsupported wire type " + wireType);
+        }
+    }
+
+    private static long readVarint(BufferedSource source) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = source.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("Malformed varint");
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeTag(BufferedSink sink, int field, int wireType) throws IOException {
+        writeVarint(sink, ((long) field << 3) | wireType);
+    }
+
+    private static void writeVarint(BufferedSink sink, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            sink.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        sink.writeByte((int) value);
+    }
+
+    private static void writeString(BufferedSink sink, int field, @Nullable String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writeTag(sink, field, WIRE_LENGTH_DELIMITED);
+        writeVarint(sink, okio.Utf8.size(value));
+        sink.writeUtf8(value);
+    }
+}
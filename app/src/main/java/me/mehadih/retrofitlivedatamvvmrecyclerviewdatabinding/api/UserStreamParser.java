@@ -0,0 +1,65 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+
+/**
+ * Incremental parser for the users JSON array
+ * Reads one user at a time from the response stream instead of buffering the whole body,
+ * and reports progress so rows can be shown while the rest of the payload is still arriving.
+ *
+ * Progress is reported after the first chunk and then every time the parsed count doubles,
+ * which keeps the total cost of listeners copying the list linear in its size.
+ */
+public class UserStreamParser {
+
+    /**
+     * Receives the users parsed so far
+     * The list is a read-only view that keeps growing; copy it before handing it to another thread.
+     */
+    public interface ProgressListener {
+        void onProgress(@NonNull List<User> usersSoFar);
+    }
+
+    private final TypeAdapter<User> userAdapter;
+    private final int firstChunkSize;
+
+    public UserStreamParser(@NonNull Gson gson, int firstChunkSize) {
+        this.userAdapter = gson.getAdapter(User.class);
+        this.firstChunkSize = Math.max(1, firstChunkSize);
+    }
+
+    /**
+     * Parses a JSON array of users from the reader
+     */
+    @NonNull
+    public List<User> parse(@NonNull Reader reader, @Nullable ProgressListener listener) throws IOException {
+        List<User> users = new ArrayList<>();
+        List<User> usersView = Collections.unmodifiableList(users);
+        int nextReportAt = firstChunkSize;
+
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            users.add(userAdapter.read(jsonReader));
+            if (listener != null && users.size() == nextReportAt) {
+                listener.onProgress(usersView);
+                nextReportAt *= 2;
+            }
+        }
+        jsonReader.endArray();
+        return users;
+    }
+}
@@ -0,0 +1,47 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import okhttp3.ResponseBody;
+
+/**
+ * A response encoding that {@link NegotiatingConverterFactory} can offer besides JSON
+ *
+ * Formats that can read the users list also decode the streamed users response in
+ * {@link ApiService}, which picks the one matching the Content-Type the same way.
+ */
+public interface WireFormat {
+    /**
+     * Returns the media type this format is sent as, e.g. for the Accept header
+     */
+    @NonNull
+    String getMediaType();
+
+    /**
+     * Returns true when bodies of this format can be converted to the given type
+     */
+    boolean canRead(@NonNull Type type);
+
+    /**
+     * Converts a body of this format; the caller closes it
+     */
+    @NonNull
+    Object read(@NonNull ResponseBody body) throws IOException;
+
+    /**
+     * Converts a users list of this format; formats that read users one at a time report
+     * progress to the listener, others convert the whole body. The caller closes it.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    default List<User> readUsers(@NonNull ResponseBody body,
+                                 @Nullable UserStreamParser.ProgressListener listener) throws IOException {
+        return (List<User>) read(body);
+    }
+}
@@ -0,0 +1,246 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+
+/**
+ * Bounded in-memory cache of user snapshots and the UI models derived from them
+ * Everything held here can be rebuilt, from {@link UserCache} or from the snapshot itself,
+ * so it is the first thing given up under memory pressure.
+ *
+ * Entries are sized by the caller's estimate of their retained bytes and evicted least
+ * recently used first once the total passes the budget. {@link #onTrimMemory(int)} and
+ * {@link #onLowMemory()} shrink the cache further, down to nothing while the process is
+ * in the background, so it is cheap to keep rather than one of the first to be killed.
+ *
+ * Values under a pinned {@link Key}, such as the current user list, are kept whatever their
+ * size: making room and trimming only evict unpinned, derived entries. Pinned values are
+ * only given up when the cache is emptied with {@link #evictAll()}.
+ *
+ * Hits, misses and evictions are counted as {@code snapshot_cache.hit}, {@code .miss}
+ * and {@code .eviction} in {@link MetricsRegistry}.
+ */
+public class SnapshotCache {
+    private static final String TAG = "SnapshotCache";
+
+    private final long maxBytes;
+    private final MetricsRegistry metrics;
+    private final List<OnEvictedListener> listeners = new CopyOnWriteArrayList<>();
+    /** In access order, least recently used first */
+    private final LinkedHashMap<Key<?>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public SnapshotCache(long maxBytes, @NonNull MetricsRegistry metrics) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the cached value, or null when it was never cached or has been evicted
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Key<T> key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+        }
+        metrics.increment(entry != null ? "snapshot_cache.hit" : "snapshot_cache.miss");
+        // Only put() stores values, always of their key's type
+        return entry != null ? (T) entry.value : null;
+    }
+
+    /**
+     * Caches a value, evicting least recently used entries to stay within the budget
+     * An unpinned value larger than the whole budget is not cached, and replaces any previous
+     * one. A pinned value is always cached.
+     *
+     * @param sizeBytes Estimate of the memory the value retains
+     */
+    public <T> void put(@NonNull Key<T> key, @NonNull T value, long sizeBytes) {
+        synchronized (this) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                this.sizeBytes -= previous.sizeBytes;
+            }
+            if (sizeBytes > maxBytes && !key.pinned) {
+                Log.w(TAG, "Not caching " + key + ": " + sizeBytes + " bytes exceeds the " + maxBytes + " byte budget");
+                return;
+            }
+            entries.put(key, new Entry(value, sizeBytes));
+            this.sizeBytes += sizeBytes;
+        }
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Drops a value without counting it as an eviction
+     */
+    public synchronized void remove(@NonNull Key<?> key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            sizeBytes -= entry.sizeBytes;
+        }
+    }
+
+    /**
+     * Evicts least recently used unpinned entries until at most maxSizeBytes are cached, or
+     * only pinned entries are left
+     */
+    public void trimToSize(long maxSizeBytes) {
+        trimToSize(maxSizeBytes, false);
+    }
+
+    private void trimToSize(long maxSizeBytes, boolean evictPinned) {
+        List<Key<?>> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Key<?>, Entry>> iterator = entries.entrySet().iterator();
+            while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+                Map.Entry<Key<?>, Entry> eldest = iterator.next();
+                if (eldest.getKey().pinned && !evictPinned) {
+                    continue;
+                }
+                iterator.remove();
+                sizeBytes -= eldest.getValue().sizeBytes;
+                evictionCount++;
+                evicted.add(eldest.getKey());
+            }
+        }
+        if (evicted.isEmpty()) {
+            return;
+        }
+        metrics.add("snapshot_cache.eviction", evicted.size());
+        // Outside the lock, so listeners may use the cache
+        for (Key<?> key : evicted) {
+            for (OnEvictedListener listener : listeners) {
+                listener.onEvicted(key);
+            }
+        }
+    }
+
+    /**
+     * Evicts every entry, pinned ones included
+     */
+    public void evictAll() {
+        trimToSize(0, true);
+    }
+
+    /**
+     * Shrinks the cache for a {@link ComponentCallbacks2} trim level
+     * Halved while the app runs low or its UI is hidden, emptied once it is in the
+     * background or the system is critically low.
+     */
+    public void onTrimMemory(int level) {
+        long before = getSizeBytes();
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(maxBytes / 2);
+        }
+        Log.d(TAG, "Trim level " + level + ": " + before + " -> " + getSizeBytes() + " bytes");
+    }
+
+    /**
+     * Empties the cache when the whole system is low on memory
+     */
+    public void onLowMemory() {
+        evictAll();
+    }
+
+    /**
+     * Registers a listener told about every evicted key, so owners can drop other references to it
+     */
+    public void addOnEvictedListener(@NonNull OnEvictedListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Typed name of a cached value; keys are compared by identity
+     *
+     * @param <T> The type of the cached value
+     */
+    public static final class Key<T> {
+        private final String name;
+        private final boolean pinned;
+
+        public Key(@NonNull String name) {
+            this(name, false);
+        }
+
+        /**
+         * @param pinned True for values that cannot be cheaply rebuilt, which are only
+         *               evicted when the whole cache is emptied
+         */
+        public Key(@NonNull String name, boolean pinned) {
+            this.name = name;
+            this.pinned = pinned;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Told when an entry is evicted to make room or under memory pressure
+     */
+    public interface OnEvictedListener {
+        void onEvicted(@NonNull Key<?> key);
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long sizeBytes;
+
+        Entry(Object value, long sizeBytes) {
+            this.value = value;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+}
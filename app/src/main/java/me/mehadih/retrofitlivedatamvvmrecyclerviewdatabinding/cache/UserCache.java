@@ -0,0 +1,173 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserChangeMerger;
+
+/**
+ * Disk-backed cache of the last user list received from the API
+ * Lets the repository render rows from local storage before the network answers
+ *
+ * Writes go to a temporary file that is renamed over the previous snapshot,
+ * so a crash mid-write never leaves a truncated cache behind.
+ *
+ * A delta sync only appends its {@link UserChanges} to a journal next to the snapshot, and
+ * {@link #read()} replays the journal onto the snapshot. Once the journal grows past a
+ * quarter of the snapshot the next delta rewrites the snapshot instead, so persisting a
+ * refresh costs the size of the change, amortized. A journal line cut short by a crash
+ * ends the replay there, leaving an older list that the next full sync replaces.
+ */
+public class UserCache {
+    private static final String TAG = "UserCache";
+    private static final String FILE_NAME = "users_cache.json";
+    private static final String JOURNAL_FILE_NAME = "users_cache.changes";
+    /** Journal size, relative to the snapshot, past which a delta rewrites the snapshot */
+    private static final int COMPACT_RATIO = 4;
+    private static final Type USER_LIST_TYPE = new TypeToken<List<User>>() {}.getType();
+
+    private final File cacheFile;
+    private final File journalFile;
+    private final Gson gson = new Gson();
+
+    public UserCache(@NonNull File directory) {
+        this.cacheFile = new File(directory, FILE_NAME);
+        this.journalFile = new File(directory, JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Reads the cached user list
+     * Returns null when nothing has been cached yet or the file is unreadable
+     */
+    @Nullable
+    @WorkerThread
+    public synchronized List<User> read() {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        List<User> users;
+        try (Reader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8))) {
+            users = gson.fromJson(reader, USER_LIST_TYPE);
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Discarding unreadable user cache", e);
+            cacheFile.delete();
+            journalFile.delete();
+            return null;
+        }
+        return users != null ? replayJournal(users) : null;
+    }
+
+    /**
+     * Applies the journaled deltas, in order, to the snapshot read from disk
+     */
+    private List<User> replayJournal(List<User> users) {
+        if (!journalFile.exists()) {
+            return users;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                users = UserChangeMerger.merge(users, gson.fromJson(line, UserChanges.class));
+            }
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Stopped replaying user cache journal", e);
+        }
+        return users;
+    }
+
+    /**
+     * Replaces the cached user list
+     */
+    @WorkerThread
+    public synchronized void write(@NonNull List<User> users) {
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            gson.toJson(users, USER_LIST_TYPE, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write user cache", e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(cacheFile)) {
+            Log.w(TAG, "Failed to replace user cache");
+            tempFile.delete();
+            return;
+        }
+        // The snapshot now includes every journaled delta
+        journalFile.delete();
+    }
+
+    /**
+     * Records a delta applied to the cached list, rewriting the list once the journal is large
+     *
+     * @param changes The delta, which must apply to the list as last written or recorded
+     * @param users   The list after the delta, written instead when the journal is compacted
+     */
+    @WorkerThread
+    public synchronized void writeChanges(@NonNull UserChanges changes, @NonNull List<User> users) {
+        if (changes.isFull() || !cacheFile.exists()
+                || journalFile.length() * COMPACT_RATIO > cacheFile.length()) {
+            write(users);
+            return;
+        }
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8))) {
+            writer.write(gson.toJson(changes));
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to append to user cache journal", e);
+            // The snapshot alone would be missing this delta
+            write(users);
+        }
+    }
+
+    /**
+     * Returns when the cached list was last written or confirmed current, 0 when nothing is cached
+     */
+    public long getSavedAtMillis() {
+        return Math.max(cacheFile.lastModified(), journalFile.lastModified());
+    }
+
+    /**
+     * Records that the server confirmed the cached list is still current
+     */
+    @WorkerThread
+    public synchronized void markFresh() {
+        if (cacheFile.exists() && !cacheFile.setLastModified(System.currentTimeMillis())) {
+            Log.w(TAG, "Failed to update user cache timestamp");
+        }
+    }
+
+    /**
+     * Removes the cached user list
+     */
+    public synchronized void clear() {
+        cacheFile.delete();
+        journalFile.delete();
+    }
+}
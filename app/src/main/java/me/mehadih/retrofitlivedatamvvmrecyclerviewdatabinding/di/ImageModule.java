@@ -0,0 +1,128 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+
+import javax.inject.Singleton;
+
+import dagger.Lazy;
+import dagger.Module;
+import dagger.Provides;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import dagger.hilt.components.SingletonComponent;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.BitmapDecoder;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageDiskCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageLoader;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+/**
+ * Image module for dependency injection
+ * Provides the avatar loader, with its own fetch threads and OkHttp client so avatar
+ * downloads never queue behind, hold up, or show up in the metrics of user API calls
+ */
+@Module
+@InstallIn(SingletonComponent.class)
+public class ImageModule {
+    private static final int IMAGE_THREADS = 3;
+    /** Rows bound during a long fling; cancelled loads leave the queue without fetching */
+    private static final int IMAGE_QUEUE_CAPACITY = 128;
+    private static final String AVATAR_CACHE_DIR = "avatars";
+    private static final long AVATAR_DISK_CACHE_BYTES = 20L * 1024 * 1024;
+    /** Share of the app's heap limit decoded avatars may use */
+    private static final int AVATAR_MEMORY_HEAP_DIVISOR = 8;
+
+    @Provides
+    @Singleton
+    public ImageLoader<Bitmap> provideAvatarLoader(@ApplicationContext Context context,
+                                                   Lazy<OkHttpClient> okHttpClient, MetricsRegistry metrics) {
+        ActivityManager activityManager = context.getSystemService(ActivityManager.class);
+        long heapBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        ImageLoader<Bitmap> loader = new ImageLoader<>(
+                new AvatarCallFactory(okHttpClient),
+                new ImageDiskCache(new File(context.getCacheDir(), AVATAR_CACHE_DIR), AVATAR_DISK_CACHE_BYTES),
+                new BitmapDecoder(),
+                heapBytes / AVATAR_MEMORY_HEAP_DIVISOR,
+                new InstrumentedExecutor("image-io", IMAGE_THREADS, IMAGE_QUEUE_CAPACITY),
+                mainHandler::post,
+                metrics);
+
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                loader.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                loader.onLowMemory();
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+        });
+        return loader;
+    }
+
+    /**
+     * Builds the avatar client from the API client
+     * It shares the API client's connection pool and dispatcher, but none of its
+     * interceptors, metrics listener or HTTP cache: ImageDiskCache already keeps the bytes,
+     * and avatar downloads must not be negotiated, logged or timed as API calls.
+     */
+    public static OkHttpClient createAvatarClient(OkHttpClient apiClient) {
+        OkHttpClient.Builder builder = apiClient.newBuilder()
+                .cache(null)
+                .eventListener(EventListener.NONE)
+                // The API client leaves retries to ApiService; nothing retries avatars
+                .retryOnConnectionFailure(true);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        return builder.build();
+    }
+
+    /**
+     * Builds the avatar client on the first download, so showing the list never builds an
+     * OkHttp client on the main thread
+     */
+    private static final class AvatarCallFactory implements Call.Factory {
+        private final Lazy<OkHttpClient> apiClient;
+        private volatile OkHttpClient client;
+
+        AvatarCallFactory(Lazy<OkHttpClient> apiClient) {
+            this.apiClient = apiClient;
+        }
+
+        @NonNull
+        @Override
+        public Call newCall(@NonNull Request request) {
+            OkHttpClient current = client;
+            if (current == null) {
+                synchronized (this) {
+                    current = client;
+                    if (current == null) {
+                        current = createAvatarClient(apiClient.get());
+                        client = current;
+                    }
+                }
+            }
+            return current.newCall(request);
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di;
 
+import android.content.Context;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Singleton;
@@ -7,9 +12,22 @@ import javax.inject.Singleton;
 import dagger.Module;
 import dagger.Provides;
 import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
 import dagger.hilt.components.SingletonComponent;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.BuildConfig;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiRequestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CircuitBreaker;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CompressionInterceptor;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ContentDecoder;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.NegotiatingConverterFactory;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.RetryPolicy;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.UserProtobufFormat;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.WireFormat;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.NetworkMetricsListener;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -22,33 +40,86 @@ import retrofit2.converter.gson.GsonConverterFactory;
 @Module
 @InstallIn(SingletonComponent.class)
 public class NetworkModule {
+    /** Threads shared by network calls, cache reads and result processing */
+    private static final int IO_THREADS = 4;
+    /** Tasks allowed to wait for a thread before new ones are rejected */
+    private static final int IO_QUEUE_CAPACITY = 64;
+    /** On-disk HTTP cache used for conditional (ETag / Last-Modified) revalidation */
+    private static final String HTTP_CACHE_DIR = "http_cache";
+    private static final long HTTP_CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+
+    @Provides
+    @Singleton
+    public InstrumentedExecutor provideIoExecutor() {
+        return new InstrumentedExecutor("user-io", IO_THREADS, IO_QUEUE_CAPACITY);
+    }
 
     @Provides
     @Singleton
-    public OkHttpClient provideOkHttpClient() {
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(
+    public OkHttpClient provideOkHttpClient(@ApplicationContext Context context, MetricsRegistry metrics) {
+        // BASIC logs one line per call; BODY would buffer every response and defeat streaming
+        return createOkHttpClient(
+            new File(context.getCacheDir(), HTTP_CACHE_DIR),
             BuildConfig.DEBUG 
-                ? HttpLoggingInterceptor.Level.BODY 
-                : HttpLoggingInterceptor.Level.NONE
+                ? HttpLoggingInterceptor.Level.BASIC 
+                : HttpLoggingInterceptor.Level.NONE,
+            metrics
         );
+    }
+
+    @Provides
+    @Singleton
+    public List<WireFormat> provideWireFormats() {
+        return createWireFormats();
+    }
 
-        return new OkHttpClient.Builder()
-                .addInterceptor(loggingInterceptor)
+    @Provides
+    @Singleton
+    public Retrofit provideRetrofit(OkHttpClient okHttpClient, List<WireFormat> formats) {
+        return createRetrofit(okHttpClient, BuildConfig.BASE_URL, formats);
+    }
+
+    /**
+     * Returns the response encodings offered besides JSON, shared by Retrofit and ApiService
+     */
+    public static List<WireFormat> createWireFormats() {
+        return Collections.singletonList(new UserProtobufFormat(ApiService.STREAM_FIRST_CHUNK_SIZE));
+    }
+
+    /**
+     * Builds the OkHttp client; also used by tests that run without an Android Context
+     * Every call's DNS, connect, TLS, TTFB and body timings are recorded into metrics, and
+     * responses are compressed with whichever of Brotli and gzip currently delivers them fastest.
+     */
+    public static OkHttpClient createOkHttpClient(File cacheDir, HttpLoggingInterceptor.Level logLevel,
+                                                  MetricsRegistry metrics) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir, HTTP_CACHE_SIZE_BYTES))
+                .eventListenerFactory(NetworkMetricsListener.factory(metrics))
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true)
-                .build();
+                // ApiService retries with backoff and a budget; OkHttp's own retries bypass both
+                .retryOnConnectionFailure(false)
+                // A network interceptor, so cache hits and revalidations are never measured as downloads
+                .addNetworkInterceptor(new CompressionInterceptor(metrics, ContentDecoder.BROTLI, ContentDecoder.GZIP));
+        if (logLevel != HttpLoggingInterceptor.Level.NONE) {
+            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+            loggingInterceptor.setLevel(logLevel);
+            builder.addInterceptor(loggingInterceptor);
+        }
+        return builder.build();
     }
 
-    @Provides
-    @Singleton
-    public Retrofit provideRetrofit(OkHttpClient okHttpClient) {
+    /**
+     * Builds Retrofit against the given base URL, e.g. a local stand-in server in tests
+     * Responses are decoded by the format matching their Content-Type, and from JSON otherwise.
+     */
+    public static Retrofit createRetrofit(OkHttpClient okHttpClient, String baseUrl, List<WireFormat> formats) {
         return new Retrofit.Builder()
-                .baseUrl(BuildConfig.BASE_URL)
+                .baseUrl(baseUrl)
                 .client(okHttpClient)
-                .addConverterFactory(GsonConverterFactory.create())
+                .addConverterFactory(new NegotiatingConverterFactory(GsonConverterFactory.create(), formats))
                 .build();
     }
 
@@ -60,9 +131,10 @@ public class NetworkModule {
 
     @Provides
     @Singleton
-    public me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService provideApiService(
-            ApiRequestData apiRequestData) {
-        return new me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService(apiRequestData);
+    public ApiService provideApiService(ApiRequestData apiRequestData, InstrumentedExecutor ioExecutor,
+                                        MetricsRegistry metrics, List<WireFormat> formats) {
+        return new ApiService(apiRequestData, ioExecutor, metrics, formats,
+                RetryPolicy::defaults, CircuitBreaker::defaults);
     }
 }
 
@@ -0,0 +1,41 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import dagger.hilt.components.SingletonComponent;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+
+/**
+ * Storage module for dependency injection
+ * Provides on-disk caches used by the repository layer, and the in-memory snapshot cache
+ */
+@Module
+@InstallIn(SingletonComponent.class)
+public class StorageModule {
+    /** Share of the app's heap limit the snapshot cache may use, halved on low-RAM devices */
+    private static final int SNAPSHOT_CACHE_HEAP_DIVISOR = 16;
+
+    @Provides
+    @Singleton
+    public UserCache provideUserCache(@ApplicationContext Context context) {
+        return new UserCache(context.getFilesDir());
+    }
+
+    @Provides
+    @Singleton
+    public SnapshotCache provideSnapshotCache(@ApplicationContext Context context, MetricsRegistry metrics) {
+        ActivityManager activityManager = context.getSystemService(ActivityManager.class);
+        long heapBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+        int divisor = activityManager.isLowRamDevice() ? SNAPSHOT_CACHE_HEAP_DIVISOR * 2 : SNAPSHOT_CACHE_HEAP_DIVISOR;
+        return new SnapshotCache(heapBytes / divisor, metrics);
+    }
+}
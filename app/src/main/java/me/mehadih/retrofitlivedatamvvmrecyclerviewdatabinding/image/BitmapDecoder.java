@@ -0,0 +1,52 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Decodes Bitmaps with BitmapFactory, subsampled close to the size they are shown at
+ *
+ * A first pass reads only the dimensions; the second decodes with the largest power-of-two
+ * inSampleSize that keeps both sides at or above the target, so a 512px avatar shown at
+ * 64dp on a 2x screen is decoded at 128px, a sixteenth of the memory. Avatars are opaque,
+ * so RGB_565 halves the memory again.
+ */
+public class BitmapDecoder implements ImageDecoder<Bitmap> {
+
+    @Nullable
+    @Override
+    public Bitmap decode(@NonNull byte[] data, int targetPx) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetPx);
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    @Override
+    public long sizeBytes(@NonNull Bitmap image) {
+        return image.getAllocationByteCount();
+    }
+
+    /**
+     * Returns the largest power of two that keeps both sides at least targetPx when divided by it
+     */
+    public static int calculateInSampleSize(int width, int height, int targetPx) {
+        int sampleSize = 1;
+        if (targetPx <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetPx && height / (sampleSize * 2) >= targetPx) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
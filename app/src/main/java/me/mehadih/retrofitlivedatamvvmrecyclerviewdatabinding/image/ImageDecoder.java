@@ -0,0 +1,28 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+
+/**
+ * Turns downloaded image bytes into a displayable image no larger than needed
+ *
+ * @param <T> The type of the decoded image, e.g. Bitmap
+ */
+public interface ImageDecoder<T> {
+    /**
+     * Decodes the image, downsampled as far as it can be while both sides stay at least
+     * targetPx, or at full size when it is already smaller
+     * Returns null when the data is not a decodable image.
+     */
+    @Nullable
+    @WorkerThread
+    T decode(@NonNull byte[] data, int targetPx) throws IOException;
+
+    /**
+     * Returns the memory the decoded image occupies, for sizing the memory cache
+     */
+    long sizeBytes(@NonNull T image);
+}
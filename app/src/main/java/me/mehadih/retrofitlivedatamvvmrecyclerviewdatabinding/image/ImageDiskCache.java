@@ -0,0 +1,156 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okio.ByteString;
+
+/**
+ * Size-bounded directory of downloaded image files, evicted least recently used first
+ * Holds the encoded bytes as served, so one download serves every decode size.
+ *
+ * Files are named after the SHA-256 of their URL. Recency survives restarts through the
+ * files' modification times, which reads refresh. Writes go to a temporary file that is
+ * renamed into place, so a crash mid-write never leaves a truncated image behind.
+ */
+public class ImageDiskCache {
+    private static final String TAG = "ImageDiskCache";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+    /** File name to size, in access order; loaded from the directory on first use */
+    private LinkedHashMap<String, Long> entries;
+    private long sizeBytes;
+
+    public ImageDiskCache(@NonNull File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached bytes for the URL, or null when they are not cached
+     */
+    @Nullable
+    @WorkerThread
+    public synchronized byte[] get(@NonNull String url) {
+        String name = fileName(url);
+        if (!load().containsKey(name)) {
+            return null;
+        }
+        File file = new File(directory, name);
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            // Reorders the entry, and keeps its recency across restarts
+            entries.get(name);
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable image " + name, e);
+            remove(name);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the bytes for the URL, evicting least recently used files to stay within the budget
+     */
+    @WorkerThread
+    public synchronized void put(@NonNull String url, @NonNull byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        load();
+        String name = fileName(url);
+        File tempFile = new File(directory, name + TEMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write image " + name, e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(new File(directory, name))) {
+            Log.w(TAG, "Failed to store image " + name);
+            tempFile.delete();
+            return;
+        }
+        Long previous = entries.put(name, (long) data.length);
+        sizeBytes += data.length - (previous != null ? previous : 0);
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Returns the bytes currently stored
+     */
+    public synchronized long getSizeBytes() {
+        load();
+        return sizeBytes;
+    }
+
+    private void trimToSize(long maxSizeBytes) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            sizeBytes -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    private void remove(String name) {
+        Long size = entries.remove(name);
+        if (size != null) {
+            sizeBytes -= size;
+        }
+        new File(directory, name).delete();
+    }
+
+    /**
+     * Indexes the directory, oldest first, the first time the cache is used
+     */
+    private LinkedHashMap<String, Long> load() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new LinkedHashMap<>(64, 0.75f, true);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return entries;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return entries;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // Left behind by an interrupted write
+                file.delete();
+            } else {
+                entries.put(file.getName(), file.length());
+                sizeBytes += file.length();
+            }
+        }
+        trimToSize(maxBytes);
+        return entries;
+    }
+
+    private static String fileName(String url) {
+        return ByteString.encodeUtf8(url).sha256().hex();
+    }
+}
@@ -0,0 +1,395 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Loads images off the main thread through a memory LRU, a disk cache and the network
+ *
+ * Decoded images are kept in memory per URL and target size, bounded by their size in
+ * bytes; downloaded bytes are kept on disk by {@link ImageDiskCache}. A load that hits
+ * memory is delivered before {@link #load} returns, so a rebound row never flashes its
+ * placeholder. Anything else is downloaded if needed and decoded at the target size by
+ * the {@link ImageDecoder} on the fetch executor, then delivered on the callback executor.
+ *
+ * Concurrent loads of the same image share one fetch. Cancelling a load, e.g. when its
+ * row is recycled, drops its delivery, and cancels the fetch itself, including the HTTP
+ * call, once no other load or prefetch is waiting for it. Prefetches warm the caches for
+ * images about to be shown and are skipped while the fetch queue is already busy.
+ *
+ * Counters {@code image.memory_hit}, {@code .disk_hit}, {@code .network}, {@code .cancelled}
+ * and {@code .failed} and the histograms {@code image.decode} and {@code image.load}
+ * (request to delivery, for loads that missed memory) are recorded in {@link MetricsRegistry}.
+ *
+ * @param <T> The type of the decoded image, e.g. Bitmap
+ */
+public class ImageLoader<T> {
+    private static final String TAG = "ImageLoader";
+    /** Fetches allowed in flight before prefetches are skipped */
+    private static final int MAX_PENDING_FOR_PREFETCH = 8;
+    /** ImageDiskCache already keeps the bytes; an HTTP cache would store them a second time */
+    private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+
+    private final Call.Factory callFactory;
+    private final ImageDiskCache diskCache;
+    private final ImageDecoder<T> decoder;
+    private final long memoryMaxBytes;
+    private final Executor fetchExecutor;
+    private final Executor callbackExecutor;
+    private final MetricsRegistry metrics;
+
+    // Guarded by this
+    /** Decoded images by key, in access order */
+    private final LinkedHashMap<String, T> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> memorySizes = new HashMap<>();
+    private long memoryBytes;
+    /** Fetches queued or running, by key */
+    private final Map<String, Job> jobs = new HashMap<>();
+
+    /**
+     * @param memoryMaxBytes   Budget for decoded images held in memory
+     * @param fetchExecutor    Runs downloads and decodes, one task per fetch
+     * @param callbackExecutor Delivers loaded images, normally the main thread
+     */
+    public ImageLoader(@NonNull Call.Factory callFactory, @NonNull ImageDiskCache diskCache,
+                       @NonNull ImageDecoder<T> decoder, long memoryMaxBytes, @NonNull Executor fetchExecutor,
+                       @NonNull Executor callbackExecutor, @NonNull MetricsRegistry metrics) {
+        this.callFactory = callFactory;
+        this.diskCache = diskCache;
+        this.decoder = decoder;
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.fetchExecutor = fetchExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Loads the image at the URL, decoded for targetPx, and hands it to the target
+     * The target is called at most once, on the callback executor, or immediately when the
+     * image is in memory. It is not called if loading fails or the load is cancelled.
+     */
+    @NonNull
+    @MainThread
+    public LoadRequest load(@NonNull String url, int targetPx, @NonNull Target<T> target) {
+        String key = key(url, targetPx);
+        T cached = getMemory(key);
+        if (cached != null) {
+            metrics.increment("image.memory_hit");
+            LoadRequest request = new LoadRequest(null, target);
+            request.done = true;
+            target.onLoaded(cached);
+            return request;
+        }
+        synchronized (this) {
+            Job job = jobs.get(key);
+            boolean created = job == null;
+            if (created) {
+                job = new Job(key, url, targetPx);
+            }
+            LoadRequest request = new LoadRequest(job, target);
+            job.requests.add(request);
+            if (created && !start(job)) {
+                request.done = true;
+            }
+            return request;
+        }
+    }
+
+    /**
+     * Fetches and decodes the image into the caches without delivering it anywhere
+     * Does nothing when it is already in memory or being fetched, or when the fetch
+     * queue is busy enough that the prefetch would delay images already on screen.
+     */
+    public void prefetch(@NonNull String url, int targetPx) {
+        String key = key(url, targetPx);
+        synchronized (this) {
+            if (memory.containsKey(key) || jobs.containsKey(key) || jobs.size() >= MAX_PENDING_FOR_PREFETCH) {
+                return;
+            }
+            Job job = new Job(key, url, targetPx);
+            job.prefetch = true;
+            start(job);
+        }
+    }
+
+    /**
+     * Returns the decoded image when it is in memory, without loading it otherwise
+     */
+    @Nullable
+    public T getCached(@NonNull String url, int targetPx) {
+        return getMemory(key(url, targetPx));
+    }
+
+    /**
+     * Shrinks the memory cache for a {@link ComponentCallbacks2} trim level
+     * Halved while the app runs low or its UI is hidden, emptied once it is in the
+     * background or the system is critically low.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimMemory(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimMemory(memoryMaxBytes / 2);
+        }
+    }
+
+    /**
+     * Empties the memory cache when the whole system is low on memory
+     */
+    public void onLowMemory() {
+        trimMemory(0);
+    }
+
+    /**
+     * Returns the bytes of decoded images held in memory
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Returns the number of fetches queued or running
+     */
+    public synchronized int getPendingCount() {
+        return jobs.size();
+    }
+
+    private synchronized T getMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void putMemory(String key, T image) {
+        long size = decoder.sizeBytes(image);
+        if (size > memoryMaxBytes) {
+            return;
+        }
+        memory.put(key, image);
+        Long previous = memorySizes.put(key, size);
+        memoryBytes += size - (previous != null ? previous : 0);
+        trimMemory(memoryMaxBytes);
+    }
+
+    private synchronized void trimMemory(long maxBytes) {
+        Iterator<Map.Entry<String, T>> iterator = memory.entrySet().iterator();
+        while (memoryBytes > maxBytes && iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            iterator.remove();
+            memoryBytes -= memorySizes.remove(key);
+        }
+    }
+
+    /**
+     * Registers and queues a job; returns false when the executor rejected it
+     * Must hold the lock.
+     */
+    private boolean start(Job job) {
+        jobs.put(job.key, job);
+        try {
+            fetchExecutor.execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // The row keeps its placeholder and loads again when it is next bound
+            Log.w(TAG, "Fetch queue full, dropping " + job.url);
+            jobs.remove(job.key);
+            return false;
+        }
+    }
+
+    @WorkerThread
+    private void run(Job job) {
+        if (job.cancelled) {
+            return;
+        }
+        T image = null;
+        try {
+            byte[] data = diskCache.get(job.url);
+            if (data != null) {
+                metrics.increment("image.disk_hit");
+            } else {
+                data = download(job);
+            }
+            if (data != null && !job.cancelled) {
+                long decodeStart = System.nanoTime();
+                image = decoder.decode(data, job.targetPx);
+                metrics.recordSince("image.decode", decodeStart);
+                if (image == null) {
+                    Log.w(TAG, "Undecodable image " + job.url);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!job.cancelled) {
+                Log.w(TAG, "Failed to load " + job.url, e);
+            }
+        } finally {
+            // Also after an Error such as running out of memory while decoding, so later loads do not join a dead job
+            finish(job, image);
+        }
+    }
+
+    /**
+     * Downloads the image and stores it on disk; returns null when the call failed or was cancelled
+     */
+    @Nullable
+    private byte[] download(Job job) throws IOException {
+        Call call = callFactory.newCall(new Request.Builder().url(job.url).cacheControl(NO_STORE).build());
+        synchronized (this) {
+            if (job.cancelled) {
+                return null;
+            }
+            job.call = call;
+        }
+        metrics.increment("image.network");
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                Log.w(TAG, "HTTP " + response.code() + " for " + job.url);
+                return null;
+            }
+            byte[] data = body.bytes();
+            diskCache.put(job.url, data);
+            return data;
+        }
+    }
+
+    private void finish(Job job, @Nullable T image) {
+        List<LoadRequest> requests;
+        synchronized (this) {
+            if (jobs.get(job.key) == job) {
+                jobs.remove(job.key);
+            }
+            if (image != null) {
+                putMemory(job.key, image);
+            }
+            requests = new ArrayList<>(job.requests);
+            job.requests.clear();
+            for (LoadRequest request : requests) {
+                request.done = true;
+            }
+        }
+        if (image == null) {
+            if (!job.cancelled) {
+                metrics.increment("image.failed");
+            }
+            return;
+        }
+        for (LoadRequest request : requests) {
+            callbackExecutor.execute(() -> {
+                // Cancelled after the image was ready but before it reached the callback executor
+                if (!request.cancelled) {
+                    metrics.recordSince("image.load", request.startNanos);
+                    request.target.onLoaded(image);
+                }
+            });
+        }
+    }
+
+    private void cancel(LoadRequest request) {
+        Call call = null;
+        synchronized (this) {
+            if (request.cancelled) {
+                return;
+            }
+            request.cancelled = true;
+            Job job = request.job;
+            if (request.done || job == null) {
+                return;
+            }
+            job.requests.remove(request);
+            metrics.increment("image.cancelled");
+            if (job.requests.isEmpty() && !job.prefetch) {
+                job.cancelled = true;
+                jobs.remove(job.key);
+                call = job.call;
+            }
+        }
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    private static String key(String url, int targetPx) {
+        return targetPx + "@" + url;
+    }
+
+    /**
+     * Receives a loaded image
+     */
+    public interface Target<T> {
+        @MainThread
+        void onLoaded(@NonNull T image);
+    }
+
+    /**
+     * Handle to one load, used to cancel it
+     */
+    public final class LoadRequest {
+        private final Job job;
+        private final Target<T> target;
+        private final long startNanos = System.nanoTime();
+        /** Set once the job finished and this request was handed its result, if any */
+        private boolean done;
+        private volatile boolean cancelled;
+
+        private LoadRequest(Job job, Target<T> target) {
+            this.job = job;
+            this.target = target;
+        }
+
+        /**
+         * Stops the image from being delivered, and stops fetching it if nothing else needs it
+         */
+        @MainThread
+        public void cancel() {
+            ImageLoader.this.cancel(this);
+        }
+
+        /**
+         * Returns true once the image was delivered, failed, or the load was cancelled
+         */
+        public boolean isFinished() {
+            synchronized (ImageLoader.this) {
+                return done || cancelled;
+            }
+        }
+    }
+
+    private final class Job {
+        final String key;
+        final String url;
+        final int targetPx;
+        final List<LoadRequest> requests = new ArrayList<>(1);
+        /** Kept running without requests, set for prefetches */
+        boolean prefetch;
+        volatile boolean cancelled;
+        Call call;
+
+        Job(String key, String url, int targetPx) {
+            this.key = key;
+            this.url = url;
+            this.targetPx = targetPx;
+        }
+    }
+}
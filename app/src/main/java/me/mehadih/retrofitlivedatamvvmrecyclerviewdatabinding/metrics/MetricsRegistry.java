@@ -0,0 +1,115 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Process-wide named latency histograms, event counters and gauges
+ * Names are dotted by layer ({@code http.ttfb}, {@code repository.fetch}, ...).
+ * Everything is recorded in memory; {@link #dump()} renders it as text and
+ * {@link #getHistograms()} / {@link #getCounters()} / {@link #getGauges()} expose it for export.
+ */
+@Singleton
+public class MetricsRegistry {
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Double> gauges = new ConcurrentHashMap<>();
+
+    @Inject
+    public MetricsRegistry() {}
+
+    /**
+     * Returns the histogram with this name, creating it on first use
+     */
+    @NonNull
+    public LatencyHistogram histogram(@NonNull String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} timestamp
+     */
+    public void recordSince(@NonNull String name, long startNanos) {
+        histogram(name).recordSince(startNanos);
+    }
+
+    /**
+     * Adds one to the counter with this name
+     */
+    public void increment(@NonNull String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds an amount, such as a byte count, to the counter with this name
+     */
+    public void add(@NonNull String name, long amount) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, key -> new LongAdder());
+        }
+        counter.add(amount);
+    }
+
+    /**
+     * Sets the gauge with this name to the latest value of a measure, such as a ratio
+     */
+    public void set(@NonNull String name, double value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Returns the histograms by name, in name order
+     */
+    @NonNull
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    /**
+     * Returns the current counter values by name, in name order
+     */
+    @NonNull
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Returns the latest gauge values by name, in name order
+     */
+    @NonNull
+    public Map<String, Double> getGauges() {
+        return Collections.unmodifiableMap(new TreeMap<>(gauges));
+    }
+
+    /**
+     * Renders every histogram, counter and gauge, one per line
+     */
+    @NonNull
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Double> entry : getGauges().entrySet()) {
+            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * OkHttp EventListener that records the phases of every call into a {@link MetricsRegistry}
+ *
+ * Histograms: {@code http.dns}, {@code http.connect} (TCP, including TLS), {@code http.tls},
+ * {@code http.ttfb} (request sent to response headers), {@code http.body} (body read,
+ * including any parsing done while streaming) and {@code http.call} (whole call).
+ * Counters: {@code http.cache_hit}, {@code http.cache_conditional_hit},
+ * {@code http.cache_miss} and {@code http.call_failed}.
+ *
+ * A listener instance belongs to a single call, so its timestamps need no synchronization.
+ */
+public final class NetworkMetricsListener extends EventListener {
+    private final MetricsRegistry metrics;
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long responseBodyStart;
+
+    private NetworkMetricsListener(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a factory creating one listener per call
+     */
+    @NonNull
+    public static EventListener.Factory factory(@NonNull MetricsRegistry metrics) {
+        return call -> new NetworkMetricsListener(metrics);
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        metrics.recordSince("http.dns", dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        metrics.recordSince("http.tls", secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        metrics.recordSince("http.connect", connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        metrics.recordSince("http.ttfb", requestStart);
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        responseBodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        metrics.recordSince("http.body", responseBodyStart);
+    }
+
+    @Override
+    public void cacheHit(@NonNull Call call, @NonNull Response response) {
+        metrics.increment("http.cache_hit");
+    }
+
+    @Override
+    public void cacheConditionalHit(@NonNull Call call, @NonNull Response cachedResponse) {
+        metrics.increment("http.cache_conditional_hit");
+    }
+
+    @Override
+    public void cacheMiss(@NonNull Call call) {
+        metrics.increment("http.cache_miss");
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        metrics.recordSince("http.call", callStart);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        metrics.increment("http.call_failed");
+    }
+}
@@ -0,0 +1,34 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Photo album owned by a user, as returned by the albums endpoint
+ */
+public final class Album {
+    private int userId;
+    private int id;
+    @Nullable
+    private String title;
+
+    public Album() {}
+
+    public Album(int userId, int id, @Nullable String title) {
+        this.userId = userId;
+        this.id = id;
+        this.title = title;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return title;
+    }
+}
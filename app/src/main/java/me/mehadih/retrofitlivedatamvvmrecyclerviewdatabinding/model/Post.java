@@ -0,0 +1,45 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Post written by a user, as returned by the posts endpoint
+ */
+public final class Post {
+    private int userId;
+    private int id;
+    @Nullable
+    private String title;
+    @Nullable
+    private String body;
+
+    public Post() {}
+
+    public Post(int userId, int id, @Nullable String title, @Nullable String body) {
+        this.userId = userId;
+        this.id = id;
+        this.title = title;
+        this.body = body;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the post text
+     */
+    @Nullable
+    public String getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,43 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Todo item assigned to a user, as returned by the todos endpoint
+ */
+public final class Todo {
+    private int userId;
+    private int id;
+    @Nullable
+    private String title;
+    private boolean completed;
+
+    public Todo() {}
+
+    public Todo(int userId, int id, @Nullable String title, boolean completed) {
+        this.userId = userId;
+        this.id = id;
+        this.title = title;
+        this.completed = completed;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns true when the todo is done
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -3,41 +3,36 @@ package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.List;
+import java.util.Objects;
 
 /**
  * User model class representing a user entity from the API
  * 
  * This class follows 2025 best practices:
- * - Uses Gson annotations for JSON serialization/deserialization
+ * - Immutable, so lists of users can be shared between threads and layers without copying
+ * - Deserialized by {@link UserTypeAdapter} instead of reflection
  * - Implements proper null safety with annotations
- * - Provides getters and setters for data binding compatibility
+ * - Provides getters for data binding compatibility
  * 
  * @author Mehadi
  * @since 2025
  */
-public class User {
+@JsonAdapter(UserTypeAdapter.class)
+public final class User {
 
-    @SerializedName("id")
-    private int id;
+    private final int id;
 
-    @SerializedName("name")
     @Nullable
-    private String name;
+    private final String name;
 
-    @SerializedName("username")
     @Nullable
-    private String username;
+    private final String username;
 
-    @SerializedName("email")
     @Nullable
-    private String email;
-
-    /**
-     * Default constructor required for Gson
-     */
-    public User() {
-    }
+    private final String email;
 
     /**
      * Constructor with all fields
@@ -53,37 +48,21 @@ public class User {
         return id;
     }
 
-    public void setId(int id) {
-        this.id = id;
-    }
-
     @Nullable
     public String getName() {
         return name;
     }
 
-    public void setName(@Nullable String name) {
-        this.name = name;
-    }
-
     @Nullable
     public String getUsername() {
         return username;
     }
 
-    public void setUsername(@Nullable String username) {
-        this.username = username;
-    }
-
     @Nullable
     public String getEmail() {
         return email;
     }
 
-    public void setEmail(@Nullable String email) {
-        this.email = email;
-    }
-
     /**
      * Returns a display name for the user
      * Falls back to username if name is null
@@ -93,6 +72,60 @@ public class User {
         return name != null && !name.isEmpty() ? name : (username != null ? username : "Unknown User");
     }
 
+    /**
+     * Compares every displayed field
+     * Unlike equals(), which only compares ids, this detects edited users
+     */
+    public boolean hasSameContent(@Nullable User other) {
+        return other == this || other != null
+                && id == other.id
+                && Objects.equals(name, other.name)
+                && Objects.equals(username, other.username)
+                && Objects.equals(email, other.email);
+    }
+
+    /**
+     * Returns true when both lists hold the same users, in order, with identical content
+     */
+    public static boolean hasSameContent(@Nullable List<User> first, @Nullable List<User> second) {
+        if (first == second) return true;
+        if (first == null || second == null || first.size() != second.size()) return false;
+        for (int i = 0; i < first.size(); i++) {
+            User user = first.get(i);
+            if (user == null ? second.get(i) != null : !user.hasSameContent(second.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the heap retained by a list of users, for sizing in-memory caches
+     * Counts object headers, references and one byte per character (compact strings).
+     */
+    public static long estimateSizeBytes(@NonNull List<User> users) {
+        long bytes = 16 + 16 + 4L * users.size();
+        for (User user : users) {
+            bytes += estimateSizeBytes(user);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the heap retained by one user, not counting the list reference to it
+     */
+    public static long estimateSizeBytes(@Nullable User user) {
+        return user == null ? 0 : 32 + estimateSizeBytes(user.name) + estimateSizeBytes(user.username)
+                + estimateSizeBytes(user.email);
+    }
+
+    /**
+     * Estimates the heap retained by a string: the String object plus its backing array
+     */
+    public static long estimateSizeBytes(@Nullable String value) {
+        return value == null ? 0 : 24 + 16 + value.length();
+    }
+
     @Override
     @NonNull
     public String toString() {
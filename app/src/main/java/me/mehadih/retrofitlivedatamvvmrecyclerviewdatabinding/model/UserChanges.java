@@ -0,0 +1,65 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes to the user collection since a given version, as returned by the sync endpoint
+ *
+ * When {@code full} is true the server could not compute a delta (first sync, or a
+ * version it no longer tracks) and {@code upserted} holds the complete collection.
+ */
+public final class UserChanges {
+    private long version;
+    private boolean full;
+    private List<User> upserted;
+    private int[] deleted;
+
+    public UserChanges() {}
+
+    public UserChanges(long version, boolean full, List<User> upserted, int[] deleted) {
+        this.version = version;
+        this.full = full;
+        this.upserted = upserted;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Returns the version to send as {@code since} on the next sync
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns true when {@link #getUpserted()} replaces the whole collection
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Returns the users that were added or modified, in server order
+     */
+    @NonNull
+    public List<User> getUpserted() {
+        return upserted != null ? upserted : Collections.emptyList();
+    }
+
+    /**
+     * Returns the ids of removed users
+     */
+    @NonNull
+    public int[] getDeleted() {
+        return deleted != null ? deleted : new int[0];
+    }
+
+    /**
+     * Returns true when nothing changed since the requested version
+     */
+    public boolean isEmpty() {
+        return !full && getUpserted().isEmpty() && getDeleted().length == 0;
+    }
+}
@@ -0,0 +1,96 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.BuildConfig;
+
+/**
+ * Immutable display model for one row of the user list
+ * Holds the strings item_user.xml shows, computed once when a list arrives, so binding a
+ * row only assigns prepared values instead of formatting them on every bind.
+ */
+public final class UserItem {
+    private final int id;
+    @NonNull
+    private final String displayName;
+    @NonNull
+    private final String username;
+    @NonNull
+    private final String email;
+    @Nullable
+    private final String avatarUrl;
+
+    private UserItem(int id, @NonNull String displayName, @NonNull String username, @NonNull String email,
+                     @Nullable String avatarUrl) {
+        this.id = id;
+        this.displayName = displayName;
+        this.username = username;
+        this.email = email;
+        this.avatarUrl = avatarUrl;
+    }
+
+    /**
+     * Creates the display model for a user
+     */
+    @NonNull
+    public static UserItem of(@NonNull User user) {
+        String username = user.getUsername();
+        String email = user.getEmail();
+        return new UserItem(
+                user.getId(),
+                user.getDisplayName(),
+                username != null && !username.isEmpty() ? "@" + username : "",
+                email != null ? email : "",
+                BuildConfig.AVATAR_URL.isEmpty() ? null : String.format(Locale.ROOT, BuildConfig.AVATAR_URL, user.getId()));
+    }
+
+    /**
+     * Creates the display models for a list of users, in the same order
+     */
+    @NonNull
+    @WorkerThread
+    public static List<UserItem> of(@NonNull List<User> users) {
+        List<UserItem> items = new ArrayList<>(users.size());
+        for (User user : users) {
+            items.add(of(user));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the username prefixed with "@", or an empty string
+     */
+    @NonNull
+    public String getUsername() {
+        return username;
+    }
+
+    @NonNull
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Returns the URL of the user's avatar, or null when avatars are turned off
+     */
+    @Nullable
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+}
@@ -0,0 +1,73 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Posts, todos and albums of a set of users, grouped by user id
+ *
+ * Lookups that failed leave their users incomplete rather than failing the whole result:
+ * {@link #isComplete(int)} tells whether a user's lists can be trusted, and
+ * {@link #getErrors()} describes what went wrong.
+ */
+public final class UserResources {
+    private final Map<Integer, List<Post>> posts;
+    private final Map<Integer, List<Todo>> todos;
+    private final Map<Integer, List<Album>> albums;
+    private final Set<Integer> incompleteUserIds;
+    private final List<String> errors;
+
+    public UserResources(Map<Integer, List<Post>> posts, Map<Integer, List<Todo>> todos,
+                         Map<Integer, List<Album>> albums, Set<Integer> incompleteUserIds, List<String> errors) {
+        this.posts = posts;
+        this.todos = todos;
+        this.albums = albums;
+        this.incompleteUserIds = incompleteUserIds;
+        this.errors = errors;
+    }
+
+    @NonNull
+    public List<Post> getPosts(int userId) {
+        return orEmpty(posts.get(userId));
+    }
+
+    @NonNull
+    public List<Todo> getTodos(int userId) {
+        return orEmpty(todos.get(userId));
+    }
+
+    @NonNull
+    public List<Album> getAlbums(int userId) {
+        return orEmpty(albums.get(userId));
+    }
+
+    /**
+     * Returns true when every lookup succeeded
+     */
+    public boolean isComplete() {
+        return incompleteUserIds.isEmpty();
+    }
+
+    /**
+     * Returns true when every lookup covering this user succeeded
+     */
+    public boolean isComplete(int userId) {
+        return !incompleteUserIds.contains(userId);
+    }
+
+    /**
+     * Returns a description of each failed lookup
+     */
+    @NonNull
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+}
@@ -0,0 +1,78 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Hand-written Gson adapter for {@link User}
+ * Reads fields straight from the token stream into the immutable constructor, avoiding
+ * reflective field access and the intermediate default-constructed object.
+ * Unknown fields (address, phone, company, ...) are skipped without being materialized.
+ */
+public class UserTypeAdapter extends TypeAdapter<User> {
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_USERNAME = "username";
+    private static final String FIELD_EMAIL = "email";
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        if (user == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name(FIELD_ID).value(user.getId());
+        out.name(FIELD_NAME).value(user.getName());
+        out.name(FIELD_USERNAME).value(user.getUsername());
+        out.name(FIELD_EMAIL).value(user.getEmail());
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int id = 0;
+        String name = null;
+        String username = null;
+        String email = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case FIELD_ID:
+                    id = in.nextInt();
+                    break;
+                case FIELD_NAME:
+                    name = nextNullableString(in);
+                    break;
+                case FIELD_USERNAME:
+                    username = nextNullableString(in);
+                    break;
+                case FIELD_EMAIL:
+                    email = nextNullableString(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new User(id, name, username, email);
+    }
+
+    private static String nextNullableString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
@@ -0,0 +1,78 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.DeltaList;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.ListChanges;
+
+/**
+ * Applies a delta from the sync endpoint to the current user list, keyed by user id
+ *
+ * Deleted users are removed and updated users replaced in place; users the list does not
+ * contain yet are appended in server order. The resulting {@link DeltaList} records the
+ * positional changes, so the adapter can apply them without diffing the whole list.
+ * Only the changed ids are looked up (binary search over sorted ids), and rows are never
+ * compared unless the delta names them.
+ */
+public final class UserChangeMerger {
+    private UserChangeMerger() {}
+
+    /**
+     * Returns the merged list, or current itself when the delta changes nothing
+     */
+    @NonNull
+    public static List<User> merge(@NonNull List<User> current, @NonNull UserChanges changes) {
+        int[] deletedIds = changes.getDeleted().clone();
+        Arrays.sort(deletedIds);
+        User[] upserted = changes.getUpserted().toArray(new User[0]);
+        Arrays.sort(upserted, Comparator.comparingInt(User::getId));
+        int[] upsertedIds = new int[upserted.length];
+        for (int i = 0; i < upserted.length; i++) {
+            upsertedIds[i] = upserted[i].getId();
+        }
+        boolean[] applied = new boolean[upserted.length];
+
+        ListChanges listChanges = new ListChanges();
+        List<User> merged = new ArrayList<>(current.size() + upserted.length);
+        for (User user : current) {
+            int id = user.getId();
+            if (deletedIds.length > 0 && Arrays.binarySearch(deletedIds, id) >= 0) {
+                listChanges.onRemoved(merged.size(), 1);
+                continue;
+            }
+            int index = upsertedIds.length > 0 ? Arrays.binarySearch(upsertedIds, id) : -1;
+            if (index < 0) {
+                merged.add(user);
+                continue;
+            }
+            applied[index] = true;
+            merged.add(upserted[index]);
+            if (!upserted[index].hasSameContent(user)) {
+                listChanges.onChanged(merged.size() - 1, 1, null);
+            }
+        }
+
+        // Whatever was not an update is a new user
+        for (User user : changes.getUpserted()) {
+            int index = Arrays.binarySearch(upsertedIds, user.getId());
+            if (!applied[index]) {
+                applied[index] = true;
+                merged.add(user);
+                listChanges.onInserted(merged.size() - 1, 1);
+            }
+        }
+
+        if (listChanges.isEmpty()) {
+            return current;
+        }
+        return new DeltaList<>(Collections.unmodifiableList(merged), current, listChanges);
+    }
+}
@@ -0,0 +1,112 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+
+/**
+ * Loads users one page at a time and accumulates them into a single list
+ * Time-to-first-row depends on the page size instead of the collection size
+ *
+ * Only one page request is in flight at a time; extra loadNextPage() calls made while
+ * a page is loading, or after the last page was reached, are ignored.
+ */
+public class UserPagingSource {
+    private static final String TAG = "UserPagingSource";
+    private final ApiService apiService;
+    private final int pageSize;
+    private final MutableLiveData<Result<List<User>>> pagesLiveData = new MutableLiveData<>();
+
+    // Guarded by this
+    private List<User> loadedUsers = Collections.emptyList();
+    private int nextPage = 1;
+    private boolean loading;
+    private boolean endReached;
+    private int generation;
+
+    public UserPagingSource(ApiService apiService, int pageSize) {
+        this.apiService = apiService;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Returns the accumulated pages as a single list
+     */
+    public LiveData<Result<List<User>>> getPages() {
+        return pagesLiveData;
+    }
+
+    /**
+     * Requests the next page unless one is already loading or the end was reached
+     */
+    public synchronized void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+        int page = nextPage;
+        int requestGeneration = generation;
+        if (loadedUsers.isEmpty()) {
+            pagesLiveData.postValue(new Result.Loading<>());
+        }
+
+        apiService.getUsersPageAsync(page, pageSize).whenComplete((result, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error getting page " + page, error);
+                result = new Result.Error<>(error);
+            }
+            onPageResult(requestGeneration, page, result);
+        });
+    }
+
+    /**
+     * Drops every loaded page and starts again from the first one
+     */
+    public synchronized void refresh() {
+        generation++;
+        loadedUsers = Collections.emptyList();
+        nextPage = 1;
+        loading = false;
+        endReached = false;
+        loadNextPage();
+    }
+
+    private synchronized void onPageResult(int requestGeneration, int page, Result<List<User>> result) {
+        if (requestGeneration != generation) {
+            // A refresh happened while this page was loading
+            return;
+        }
+        loading = false;
+
+        if (result instanceof Result.Success) {
+            List<User> pageUsers = ((Result.Success<List<User>>) result).getData();
+            endReached = pageUsers.size() < pageSize;
+            nextPage = page + 1;
+
+            // Publish a new list instance so observers can diff against the previous one
+            List<User> users = new ArrayList<>(loadedUsers.size() + pageUsers.size());
+            users.addAll(loadedUsers);
+            users.addAll(pageUsers);
+            loadedUsers = Collections.unmodifiableList(users);
+            if (loadedUsers.isEmpty()) {
+                pagesLiveData.postValue(new Result.Error<>("No users found"));
+            } else {
+                pagesLiveData.postValue(new Result.Success<>(loadedUsers));
+            }
+        } else if (loadedUsers.isEmpty()) {
+            pagesLiveData.postValue(result);
+        } else {
+            // Keep the pages already shown; scrolling to the end retries this page
+            Log.w(TAG, "Failed to load page " + page);
+        }
+    }
+}
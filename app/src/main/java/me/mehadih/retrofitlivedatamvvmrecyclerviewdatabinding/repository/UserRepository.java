@@ -2,64 +2,452 @@ package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.BuildConfig;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.DeltaList;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
 
 /**
  * Repository pattern implementation with proper error handling
  * Uses dependency injection and Result wrapper for type-safe error handling (2025 best practice)
+ *
+ * Data is served offline-first (stale-while-revalidate): the last known list, from
+ * memory or from {@link UserCache}, is emitted immediately and the network response
+ * only produces a new emission when it differs from what is already shown.
+ * With nothing to show yet, users are published progressively while the response
+ * is still being parsed.
+ *
+ * When {@code BuildConfig.USERS_DELTA_SYNC} is set, refreshes ask the users/changes endpoint
+ * for what changed since the last synced version and merge it into the current list with
+ * {@link UserChangeMerger}, so their cost follows the size of the change rather than the
+ * size of the list: the merged list is published without comparing it to the snapshot,
+ * its cache size estimate is updated for the changed rows only, and only the delta is
+ * appended to {@link UserCache}. The synced version lives in memory; the first sync after
+ * a restart, or after the in-memory list was evicted, fetches the full collection.
+ *
+ * The last list is pinned in {@link SnapshotCache}: derived entries make room for it however
+ * large it is, and only emptying the cache under memory pressure takes it back; the next
+ * fetch then starts again from {@link UserCache}. While nobody observes the users, an
+ * eviction also clears the LiveData's copy.
+ *
+ * Each fetch records {@code repository.snapshot} (until the snapshot is shown) and
+ * {@code repository.fetch} (until the network result is published) into {@link MetricsRegistry}.
+ * When the IO executor is too busy to read the snapshot, the fetch goes on without the disk
+ * snapshot and counts {@code repository.snapshot_rejected}.
+ *
+ * {@link #syncUsers()} refreshes for background syncs; it joins a fetch already started by
+ * the screen, or by the startup prefetch, so a sync and a foreground refresh share one request.
+ *
+ * When {@code BuildConfig.USERS_PAGE_SIZE} is positive, {@link #getUserPages()} offers an
+ * incremental alternative that loads the collection page by page.
  */
 @Singleton
 public class UserRepository {
     private static final String TAG = "UserRepository";
+    /** Last list delivered to observers, re-emitted when revalidation finds nothing new */
+    private static final SnapshotCache.Key<Result.Success<List<User>>> USERS_SNAPSHOT =
+            new SnapshotCache.Key<>("users", true);
     private final ApiService apiService;
+    private final UserCache userCache;
+    private final SnapshotCache snapshotCache;
+    private final InstrumentedExecutor ioExecutor;
+    private final MetricsRegistry metrics;
     private final MutableLiveData<Result<List<User>>> usersLiveData = new MutableLiveData<>();
+    private final UserPagingSource pagingSource;
+    private final boolean deltaSyncEnabled;
+
+    /** Publish Future of the prefetch, until the next getUsers() call picks it up or it is superseded */
+    private final AtomicReference<CompletableFuture<Result<List<User>>>> prefetch = new AtomicReference<>();
+    // Guarded by this
+    /** Fetch currently being awaited; coalesced refreshes get the same Future back */
+    private CompletableFuture<Result<List<User>>> pendingFetch;
+    /** Completes once pendingFetch's result has been published, with what was published */
+    private CompletableFuture<Result<List<User>>> pendingPublish;
+
+    // Delta sync state, guarded by this
+    /** Version the cached snapshot was synced to, 0 when the next sync must fetch everything */
+    private long syncVersion;
+    private CompletableFuture<Result<UserChanges>> pendingChanges;
+    private CompletableFuture<Result<List<User>>> pendingMerge;
+    /** Last list sized for the snapshot cache, weakly held, and its estimated size */
+    private WeakReference<List<User>> sizedUsers = new WeakReference<>(null);
+    private long sizedBytes;
 
     @Inject
-    public UserRepository(ApiService apiService) {
+    public UserRepository(ApiService apiService, UserCache userCache, SnapshotCache snapshotCache,
+                          InstrumentedExecutor ioExecutor, MetricsRegistry metrics) {
+        this(apiService, userCache, snapshotCache, ioExecutor, metrics, BuildConfig.USERS_DELTA_SYNC);
+    }
+
+    public UserRepository(ApiService apiService, UserCache userCache, SnapshotCache snapshotCache,
+                          InstrumentedExecutor ioExecutor, MetricsRegistry metrics, boolean deltaSyncEnabled) {
         this.apiService = apiService;
+        this.userCache = userCache;
+        this.snapshotCache = snapshotCache;
+        this.ioExecutor = ioExecutor;
+        this.metrics = metrics;
+        this.deltaSyncEnabled = deltaSyncEnabled;
+        this.pagingSource = new UserPagingSource(apiService, BuildConfig.USERS_PAGE_SIZE);
+        snapshotCache.addOnEvictedListener(key -> {
+            if (key == USERS_SNAPSHOT && !usersLiveData.hasObservers()) {
+                // Observers ignore null; the next getUsers() reloads from disk
+                usersLiveData.postValue(null);
+                prefetch.set(null);
+            }
+        });
     }
 
     /**
-     * Fetches users from the API
+     * Returns true when users should be loaded page by page
+     */
+    public boolean isPagingEnabled() {
+        return BuildConfig.USERS_PAGE_SIZE > 0;
+    }
+
+    /**
+     * Fetches users, serving cached data first and revalidating against the API
      * Returns LiveData with Result wrapper for proper state management
+     * The first call after {@link #prefetchUsers()} joins the prefetch instead of fetching again,
+     * unless the prefetch failed. A fetch still in flight, e.g. one started for a screen that
+     * has since closed, is joined instead of starting another.
      */
     public LiveData<Result<List<User>>> getUsers() {
-        // Set loading state (use postValue for thread safety)
-        usersLiveData.postValue(new Result.Loading<>());
-
-        // Fetch data asynchronously
-        Future<Result<List<User>>> future = apiService.getUsersAsync();
-        
-        // Handle result on background thread
-        new Thread(() -> {
-            try {
-                Result<List<User>> result = future.get();
-                usersLiveData.postValue(result);
-            } catch (InterruptedException | ExecutionException e) {
-                Log.e(TAG, "Error getting users", e);
-                usersLiveData.postValue(new Result.Error<>(e));
-            }
-        }).start();
+        CompletableFuture<Result<List<User>>> prefetched = prefetch.getAndSet(null);
+        if (prefetched != null && !(prefetched.isDone() && prefetched.join() instanceof Result.Error)) {
+            // The prefetch is loading, or already loaded, the list into usersLiveData
+            return usersLiveData;
+        }
+        if (getFetchInFlight() != null) {
+            return usersLiveData;
+        }
+        return fetchUsers();
+    }
+
+    /**
+     * Returns the fetch in flight, completing with what it published, or null when there is none
+     */
+    @Nullable
+    public synchronized CompletableFuture<Result<List<User>>> getFetchInFlight() {
+        return pendingPublish != null && !pendingPublish.isDone() ? pendingPublish : null;
+    }
 
+    /**
+     * Starts loading users before anyone observes them, e.g. while the app starts
+     * Does nothing in paged mode, where the first page is loaded on demand.
+     */
+    public void prefetchUsers() {
+        if (isPagingEnabled()) {
+            return;
+        }
+        Log.d(TAG, "Prefetching users");
+        prefetch.set(startFetch());
+    }
+
+    private LiveData<Result<List<User>>> fetchUsers() {
+        startFetch();
         return usersLiveData;
     }
 
+    /**
+     * Refreshes users for a background sync, completing once the result is published and cached
+     * Joins a fetch already in flight, such as one started by the screen, instead of starting another.
+     * Completes with the list now shown, or the error when there is none.
+     */
+    public CompletableFuture<Result<List<User>>> syncUsers() {
+        return startFetch();
+    }
+
+    /**
+     * Returns when the disk snapshot was last written or confirmed current by the server, 0 if never
+     */
+    public long getSnapshotSavedAtMillis() {
+        return userCache.getSavedAtMillis();
+    }
+
+    /**
+     * Starts a fetch, or joins the one in flight, returning what its result published
+     */
+    private synchronized CompletableFuture<Result<List<User>>> startFetch() {
+        // Partial results are only worth showing when there is no snapshot on screen
+        AtomicBoolean publishProgress = new AtomicBoolean(false);
+
+        // Fetch data asynchronously, streaming rows in as they are parsed
+        CompletableFuture<Result<List<User>>> future = deltaSyncEnabled
+                ? syncChanges()
+                : apiService.getUsersStreamingAsync(usersSoFar -> {
+                    if (publishProgress.get()) {
+                        usersLiveData.postValue(new Result.Success<>(new ArrayList<>(usersSoFar)));
+                    }
+                });
+        if (future == pendingFetch) {
+            // Joined a fetch that is already being awaited and published
+            return pendingPublish;
+        }
+        pendingFetch = future;
+        long fetchStart = System.nanoTime();
+
+        // Show the snapshot while the network call runs, then reconcile once both are done
+        CompletableFuture<Result.Success<List<User>>> snapshotFuture;
+        try {
+            snapshotFuture = CompletableFuture.supplyAsync(() -> {
+                Result.Success<List<User>> current = snapshotCache.get(USERS_SNAPSHOT);
+                Result.Success<List<User>> snapshot = current != null ? current : readCache();
+                if (snapshot == null) {
+                    // Nothing to show yet (use postValue for thread safety)
+                    usersLiveData.postValue(new Result.Loading<>());
+                    publishProgress.set(true);
+                } else if (snapshot != current && installCachedSnapshot(snapshot)) {
+                    usersLiveData.postValue(snapshot);
+                }
+                metrics.recordSince("repository.snapshot", fetchStart);
+                return snapshot;
+            }, ioExecutor);
+        } catch (RejectedExecutionException e) {
+            // IO executor full: skip the disk read and reconcile with the in-memory snapshot only
+            Log.w(TAG, "IO executor full, not reading the cached users", e);
+            metrics.increment("repository.snapshot_rejected");
+            snapshotFuture = CompletableFuture.completedFuture(snapshotCache.get(USERS_SNAPSHOT));
+        }
+
+        pendingPublish = snapshotFuture.thenCombine(future, (snapshot, result) -> {
+                    Result<List<User>> published = onNetworkResult(snapshot, result);
+                    metrics.recordSince("repository.fetch", fetchStart);
+                    return published;
+                })
+                .exceptionally(error -> {
+                    Log.e(TAG, "Error getting users", error);
+                    Result<List<User>> published = new Result.Error<>(error);
+                    usersLiveData.postValue(published);
+                    return published;
+                });
+        return pendingPublish;
+    }
+
     /**
      * Refreshes the user list
+     * Returns the fetch, completing with what it published; it is shared with anyone who
+     * joined it, so callers that lose interest cancel a dependent stage rather than the fetch.
+     */
+    public CompletableFuture<Result<List<User>>> refreshUsers() {
+        prefetch.set(null);
+        return startFetch();
+    }
+
+    /**
+     * Returns the users loaded so far in paged mode, starting the first page if needed
+     */
+    public LiveData<Result<List<User>>> getUserPages() {
+        if (pagingSource.getPages().getValue() == null) {
+            pagingSource.loadNextPage();
+        }
+        return pagingSource.getPages();
+    }
+
+    /**
+     * Requests the next page in paged mode
      */
-    public void refreshUsers() {
-        getUsers();
+    public void loadNextPage() {
+        pagingSource.loadNextPage();
+    }
+
+    /**
+     * Reloads paged users from the first page
+     */
+    public void refreshUserPages() {
+        pagingSource.refresh();
+    }
+
+    /**
+     * Requests the changes since the last synced version and merges them into the current list
+     * Callers joining a sync already in flight get the same merged Future back.
+     */
+    private synchronized CompletableFuture<Result<List<User>>> syncChanges() {
+        if (pendingMerge == null || pendingMerge.isDone()) {
+            if (snapshotCache.get(USERS_SNAPSHOT) == null) {
+                // A delta needs the list it applies to
+                syncVersion = 0;
+            }
+        }
+        CompletableFuture<Result<UserChanges>> changes = apiService.getUserChangesAsync(syncVersion);
+        if (changes != pendingChanges) {
+            pendingChanges = changes;
+            pendingMerge = changes.thenApply(this::mergeChanges);
+        }
+        return pendingMerge;
+    }
+
+    /**
+     * Applies a sync response to the cached snapshot and persists a merged delta
+     * The full collection is persisted by onNetworkResult once it is known to differ.
+     */
+    private Result<List<User>> mergeChanges(Result<UserChanges> result) {
+        Result<List<User>> merged = applyChanges(result);
+        if (merged instanceof Result.Success && ((Result.Success<List<User>>) merged).getData() instanceof DeltaList) {
+            userCache.writeChanges(((Result.Success<UserChanges>) result).getData(),
+                    ((Result.Success<List<User>>) merged).getData());
+        }
+        return merged;
+    }
+
+    /**
+     * Applies a sync response to the cached snapshot and advances the synced version
+     * An empty delta maps to NotModified.
+     */
+    private synchronized Result<List<User>> applyChanges(Result<UserChanges> result) {
+        if (!(result instanceof Result.Success)) {
+            Result.Error<UserChanges> error = (Result.Error<UserChanges>) result;
+            return error.getException() != null
+                    ? new Result.Error<>(error.getException())
+                    : new Result.Error<>(error.getMessage());
+        }
+
+        UserChanges changes = ((Result.Success<UserChanges>) result).getData();
+        Result.Success<List<User>> base = snapshotCache.get(USERS_SNAPSHOT);
+        List<User> users;
+        if (changes.isFull()) {
+            users = Collections.unmodifiableList(new ArrayList<>(changes.getUpserted()));
+            if (base != null && User.hasSameContent(base.getData(), users)) {
+                // Keep the instance on screen so later deltas can be applied to it directly
+                users = base.getData();
+            }
+        } else if (base == null || syncVersion == 0) {
+            syncVersion = 0;
+            return new Result.Error<>("Received a delta without a synced user list");
+        } else {
+            users = UserChangeMerger.merge(base.getData(), changes);
+            if (users == base.getData()) {
+                syncVersion = changes.getVersion();
+                return new Result.NotModified<>();
+            }
+        }
+
+        if (users.isEmpty()) {
+            return new Result.Error<>("No users found");
+        }
+        Log.d(TAG, "Synced users to version " + changes.getVersion());
+        syncVersion = changes.getVersion();
+        if (base == null || users != base.getData()) {
+            base = new Result.Success<>(users);
+        }
+        // Put back even when unchanged, in case the snapshot was evicted since it was read
+        cacheSnapshot(base);
+        return base;
+    }
+
+    /**
+     * Makes the cached list the current one unless a sync produced a newer one meanwhile
+     */
+    private synchronized boolean installCachedSnapshot(Result.Success<List<User>> snapshot) {
+        if (snapshotCache.get(USERS_SNAPSHOT) != null) {
+            return false;
+        }
+        cacheSnapshot(snapshot);
+        return true;
+    }
+
+    private void cacheSnapshot(Result.Success<List<User>> snapshot) {
+        snapshotCache.put(USERS_SNAPSHOT, snapshot, estimateSizeBytes(snapshot.getData()));
+    }
+
+    /**
+     * Estimates a list's size, for a delta on the last sized list from the changed rows only
+     */
+    private synchronized long estimateSizeBytes(List<User> users) {
+        List<User> sized = sizedUsers.get();
+        if (users == sized) {
+            return sizedBytes;
+        }
+        long bytes;
+        if (users instanceof DeltaList && ((DeltaList<User>) users).isBasedOn(sized)) {
+            int[] sources = ((DeltaList<User>) users).getChanges().getSourcePositions(sized.size());
+            boolean[] kept = new boolean[sized.size()];
+            bytes = sizedBytes + 4L * (users.size() - sized.size());
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] >= 0) {
+                    kept[sources[i]] = true;
+                } else {
+                    bytes += User.estimateSizeBytes(users.get(i));
+                }
+            }
+            for (int i = 0; i < kept.length; i++) {
+                if (!kept[i]) {
+                    bytes -= User.estimateSizeBytes(sized.get(i));
+                }
+            }
+        } else {
+            bytes = User.estimateSizeBytes(users);
+        }
+        sizedUsers = new WeakReference<>(users);
+        sizedBytes = bytes;
+        return bytes;
+    }
+
+    private Result.Success<List<User>> readCache() {
+        List<User> cached = userCache.read();
+        return cached != null && !cached.isEmpty() ? new Result.Success<>(cached) : null;
+    }
+
+    /**
+     * Publishes the network result unless it matches the snapshot already shown
+     * Unchanged data and failures re-emit the snapshot so observers can finish refreshing.
+     * Returns what was published.
+     */
+    private Result<List<User>> onNetworkResult(Result.Success<List<User>> snapshot, Result<List<User>> result) {
+        if (result instanceof Result.NotModified) {
+            Result.Success<List<User>> current = snapshot != null ? snapshot : snapshotCache.get(USERS_SNAPSHOT);
+            if (current != null) {
+                Log.d(TAG, "Server reported users not modified");
+                usersLiveData.postValue(current);
+                userCache.markFresh();
+                return current;
+            }
+            result = new Result.Error<>("No users found");
+        }
+        if (result instanceof Result.Success) {
+            List<User> users = ((Result.Success<List<User>>) result).getData();
+            if (users instanceof DeltaList) {
+                // Merged from a non-empty delta, already cached and persisted by mergeChanges
+                usersLiveData.postValue(result);
+                return result;
+            }
+            if (snapshot != null && User.hasSameContent(snapshot.getData(), users)) {
+                Log.d(TAG, "Users unchanged, keeping cached snapshot");
+                usersLiveData.postValue(snapshot);
+                userCache.markFresh();
+                return snapshot;
+            }
+            cacheSnapshot((Result.Success<List<User>>) result);
+            usersLiveData.postValue(result);
+            userCache.write(users);
+            return result;
+        } else if (snapshot != null) {
+            Log.w(TAG, "Revalidation failed, keeping cached snapshot");
+            usersLiveData.postValue(snapshot);
+            return result;
+        }
+        usersLiveData.postValue(result);
+        return result;
     }
 }
@@ -0,0 +1,268 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.search;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.DeltaList;
+
+/**
+ * Immutable prefix index over user names, usernames and emails
+ *
+ * Every searchable word is stored lower-cased in one sorted array, next to the position of
+ * the user it belongs to. A query term is answered with a binary search for the first word
+ * starting with it plus a scan over the matching range, so lookups cost O(log W + matches)
+ * instead of a scan over every user. Multi-word queries return users matching all terms,
+ * in their original list order.
+ *
+ * Building is O(W log W) and should run off the main thread. A list derived from the
+ * indexed one by a {@link DeltaList} is indexed with {@link #update(List)} instead, which
+ * only tokenizes and sorts the words of inserted and changed users.
+ */
+public final class UserSearchIndex {
+    private final List<User> users;
+    private final String[] words;
+    private final int[] owners;
+
+    private UserSearchIndex(List<User> users, String[] words, int[] owners) {
+        this.users = users;
+        this.words = words;
+        this.owners = owners;
+    }
+
+    /**
+     * Indexes the users; the list must not be modified afterwards
+     */
+    @NonNull
+    @WorkerThread
+    public static UserSearchIndex build(@NonNull List<User> users) {
+        List<Entry> entries = new ArrayList<>(users.size() * 6);
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null) {
+                continue;
+            }
+            addWords(entries, user.getName(), i);
+            addWords(entries, user.getUsername(), i);
+            addWords(entries, user.getEmail(), i);
+        }
+
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, (first, second) -> first.word.compareTo(second.word));
+        String[] words = new String[sorted.length];
+        int[] owners = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            words[i] = sorted[i].word;
+            owners[i] = sorted[i].owner;
+        }
+        return new UserSearchIndex(users, words, owners);
+    }
+
+    /**
+     * Returns an index for users, reusing this one when users is a delta on the indexed list
+     * The k words of inserted and changed users are sorted and merged with the words still
+     * in use, in O(W + k log k) instead of a rebuild's O(W log W). Any other list is built
+     * from scratch.
+     */
+    @NonNull
+    @WorkerThread
+    public UserSearchIndex update(@NonNull List<User> users) {
+        if (users == this.users) {
+            return this;
+        }
+        if (!(users instanceof DeltaList) || !((DeltaList<User>) users).isBasedOn(this.users)) {
+            return build(users);
+        }
+
+        int[] sources = ((DeltaList<User>) users).getChanges().getSourcePositions(this.users.size());
+        int[] newPositions = new int[this.users.size()];
+        Arrays.fill(newPositions, -1);
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] >= 0) {
+                newPositions[sources[i]] = i;
+                continue;
+            }
+            User user = users.get(i);
+            if (user != null) {
+                addWords(entries, user.getName(), i);
+                addWords(entries, user.getUsername(), i);
+                addWords(entries, user.getEmail(), i);
+            }
+        }
+        Entry[] added = entries.toArray(new Entry[0]);
+        Arrays.sort(added, (first, second) -> first.word.compareTo(second.word));
+
+        // Merge the surviving words, moved to their new owners' positions, with the added ones
+        String[] words = new String[this.words.length + added.length];
+        int[] owners = new int[words.length];
+        int count = 0;
+        int next = 0;
+        for (int i = 0; i < this.words.length; i++) {
+            int owner = newPositions[this.owners[i]];
+            if (owner < 0) {
+                continue;
+            }
+            while (next < added.length && added[next].word.compareTo(this.words[i]) < 0) {
+                words[count] = added[next].word;
+                owners[count++] = added[next++].owner;
+            }
+            words[count] = this.words[i];
+            owners[count++] = owner;
+        }
+        for (; next < added.length; next++) {
+            words[count] = added[next].word;
+            owners[count++] = added[next].owner;
+        }
+        return new UserSearchIndex(users, Arrays.copyOf(words, count), Arrays.copyOf(owners, count));
+    }
+
+    /**
+     * Returns the users with a word starting with every term of the query
+     * An empty query returns all users.
+     */
+    @NonNull
+    public List<User> search(@Nullable String query) {
+        List<String> terms = new ArrayList<>();
+        for (String term : normalize(query).split("\\s+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return users;
+        }
+
+        // Start from the most selective term so broad terms only filter a few candidates
+        int narrowest = 0;
+        int narrowestSize = Integer.MAX_VALUE;
+        for (int t = 0; t < terms.size(); t++) {
+            int size = upperBound(terms.get(t)) - lowerBound(terms.get(t));
+            if (size < narrowestSize) {
+                narrowest = t;
+                narrowestSize = size;
+            }
+        }
+        String first = terms.remove(narrowest);
+        BitSet matches = new BitSet(users.size());
+        for (int i = lowerBound(first), end = upperBound(first); i < end; i++) {
+            matches.set(owners[i]);
+        }
+
+        List<User> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            User user = users.get(i);
+            if (matchesAll(user, terms)) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true when this index was built for exactly that list instance
+     */
+    public boolean isFor(@Nullable List<User> users) {
+        return users == this.users;
+    }
+
+    /**
+     * Estimates the heap retained by the index itself, not counting the indexed users
+     */
+    public long estimateSizeBytes() {
+        long bytes = 16 + 2 * 16 + 8L * words.length;
+        for (String word : words) {
+            bytes += User.estimateSizeBytes(word);
+        }
+        return bytes;
+    }
+
+    private static boolean matchesAll(User user, List<String> terms) {
+        if (terms.isEmpty()) {
+            return true;
+        }
+        List<Entry> words = new ArrayList<>();
+        addWords(words, user.getName(), 0);
+        addWords(words, user.getUsername(), 0);
+        addWords(words, user.getEmail(), 0);
+        for (String term : terms) {
+            boolean found = false;
+            for (Entry word : words) {
+                if (word.word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index just past the last word starting with the prefix
+     */
+    private int upperBound(String prefix) {
+        return lowerBound(prefix + Character.MAX_VALUE);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = words.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (words[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds the whole value plus each alphanumeric word inside it, so "john.doe@example.com"
+     * matches "john", "doe", "example" and the full address
+     */
+    private static void addWords(List<Entry> entries, @Nullable String value, int owner) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(value);
+        entries.add(new Entry(normalized, owner));
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (start > 0 || i < normalized.length()) {
+                    entries.add(new Entry(normalized.substring(start, i), owner));
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static String normalize(@Nullable String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final String word;
+        final int owner;
+
+        Entry(String word, int owner) {
+            this.word = word;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.sync;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.BuildConfig;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+
+/**
+ * One background refresh of the user data, run by {@link UserSyncJobService}
+ *
+ * The user list, which is all the app fetches on start, is refreshed through
+ * {@link UserRepository#syncUsers()}, so it reaches the disk snapshot and joins a fetch the
+ * screen already started.
+ *
+ * A sync is skipped when the snapshot was written or revalidated more recently than the
+ * minimum age, e.g. because the app was just in the foreground.
+ *
+ * The histogram {@code sync.run} and the counters {@code sync.skipped_fresh} and
+ * {@code sync.failed} are recorded in {@link MetricsRegistry}.
+ */
+@Singleton
+public class BackgroundSync {
+    private static final String TAG = "BackgroundSync";
+
+    private final UserRepository repository;
+    private final MetricsRegistry metrics;
+    private final long minAgeMillis;
+
+    /**
+     * Creates a sync that skips snapshots younger than half the background sync interval
+     */
+    @Inject
+    public BackgroundSync(UserRepository repository, MetricsRegistry metrics) {
+        this(repository, metrics,
+                TimeUnit.MINUTES.toMillis(BuildConfig.BACKGROUND_SYNC_INTERVAL_MINUTES) / 2);
+    }
+
+    /**
+     * @param minAgeMillis Snapshots younger than this are left alone
+     */
+    public BackgroundSync(UserRepository repository, MetricsRegistry metrics, long minAgeMillis) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.minAgeMillis = minAgeMillis;
+    }
+
+    /**
+     * Runs one sync
+     * Completes with true when the data is current, whether fetched or skipped as fresh,
+     * and false when the sync failed and is worth retrying. Never completes exceptionally.
+     */
+    @NonNull
+    public CompletableFuture<Boolean> run() {
+        long savedAt = repository.getSnapshotSavedAtMillis();
+        if (savedAt > 0 && System.currentTimeMillis() - savedAt < minAgeMillis) {
+            Log.d(TAG, "Snapshot is fresh, skipping sync");
+            metrics.increment("sync.skipped_fresh");
+            return CompletableFuture.completedFuture(true);
+        }
+
+        long start = System.nanoTime();
+        return repository.syncUsers()
+                .thenApply(result -> {
+                    if (!(result instanceof Result.Success)) {
+                        Log.w(TAG, "User sync failed: " + result);
+                        return false;
+                    }
+                    return true;
+                })
+                .exceptionally(error -> {
+                    Log.e(TAG, "Sync failed", error);
+                    return false;
+                })
+                .thenApply(synced -> {
+                    metrics.recordSince("sync.run", start);
+                    if (!synced) {
+                        metrics.increment("sync.failed");
+                    }
+                    return synced;
+                });
+    }
+}
@@ -0,0 +1,65 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.sync;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.AndroidEntryPoint;
+
+/**
+ * Runs {@link BackgroundSync} when the job scheduled by {@link UserSyncScheduler} fires
+ * Failed syncs are rescheduled with the scheduler's backoff; a sync interrupted because the
+ * network turned metered is retried the same way.
+ */
+@AndroidEntryPoint
+public class UserSyncJobService extends JobService {
+    private static final String TAG = "UserSyncJobService";
+    /** Battery percentage below which older releases skip the sync, as Android O's "battery low" */
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    @Inject
+    BackgroundSync backgroundSync;
+
+    private volatile CompletableFuture<Boolean> running;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O && isBatteryLow()) {
+            Log.d(TAG, "Battery low, skipping until the next period");
+            return false;
+        }
+        CompletableFuture<Boolean> sync = backgroundSync.run();
+        running = sync;
+        sync.thenAccept(synced -> jobFinished(params, !synced));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The fetch keeps going and still updates the cache; retry if it had not finished
+        CompletableFuture<Boolean> sync = running;
+        return sync != null && !sync.isDone();
+    }
+
+    /**
+     * Returns true when the battery is below LOW_BATTERY_PERCENT and not charging
+     */
+    private boolean isBatteryLow() {
+        Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        boolean plugged = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        return !plugged && level >= 0 && scale > 0 && level * 100 < LOW_BATTERY_PERCENT * scale;
+    }
+}
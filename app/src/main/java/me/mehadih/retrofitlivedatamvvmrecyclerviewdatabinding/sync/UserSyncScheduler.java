@@ -0,0 +1,77 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.BuildConfig;
+
+/**
+ * Schedules {@link UserSyncJobService} every {@code BuildConfig.BACKGROUND_SYNC_INTERVAL_MINUTES}
+ *
+ * The job only runs on an unmetered network and, from Android O, when the battery is not
+ * low; older releases check the battery when the job starts. The flex window lets the
+ * system batch the sync with other apps' jobs into one wake-up, and from Android P the job
+ * is marked as a prefetch with its expected download, so it can run just before the app
+ * is likely to be opened.
+ */
+@Singleton
+public class UserSyncScheduler {
+    private static final String TAG = "UserSyncScheduler";
+    static final int JOB_ID = 1001;
+    /** Users list, as fetched by {@link BackgroundSync} */
+    private static final long ESTIMATED_DOWNLOAD_BYTES = 128L * 1024;
+    /** Share of the interval the system may move the job within */
+    private static final int FLEX_DIVISOR = 4;
+
+    private final Context context;
+
+    @Inject
+    public UserSyncScheduler(@ApplicationContext Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Schedules the periodic sync, or cancels it when the interval is 0
+     * A job already scheduled with the same interval is kept, so starting the app does not
+     * push the next sync back.
+     */
+    @WorkerThread
+    public void schedule() {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        long intervalMillis = TimeUnit.MINUTES.toMillis(BuildConfig.BACKGROUND_SYNC_INTERVAL_MINUTES);
+        if (intervalMillis <= 0) {
+            scheduler.cancel(JOB_ID);
+            return;
+        }
+        JobInfo pending = scheduler.getPendingJob(JOB_ID);
+        if (pending != null && pending.getIntervalMillis() == intervalMillis) {
+            return;
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, UserSyncJobService.class))
+                .setPeriodic(intervalMillis, intervalMillis / FLEX_DIVISOR)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            builder.setPrefetch(true)
+                    .setEstimatedNetworkBytes(ESTIMATED_DOWNLOAD_BYTES, 0);
+        }
+        if (scheduler.schedule(builder.build()) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(TAG, "Failed to schedule background sync");
+        }
+    }
+}
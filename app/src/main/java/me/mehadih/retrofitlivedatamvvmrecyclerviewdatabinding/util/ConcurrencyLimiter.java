@@ -0,0 +1,119 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on an executor with at most a fixed number running at once
+ * Extra tasks wait in an unbounded queue here instead of in the executor's, so a large
+ * fan-out can neither hog every thread nor be rejected by a bounded executor queue.
+ * A task started with {@link #submitAsync} holds its slot until its Future completes.
+ */
+public class ConcurrencyLimiter {
+    private final Executor executor;
+    private final int maxConcurrent;
+
+    // Guarded by this
+    private final ArrayDeque<Task<?>> pending = new ArrayDeque<>();
+    private int running;
+
+    public ConcurrencyLimiter(@NonNull Executor executor, int maxConcurrent) {
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Runs the task as soon as fewer than the maximum are running
+     */
+    @NonNull
+    public <T> CompletableFuture<T> submit(@NonNull Supplier<T> supplier) {
+        return submitAsync(() -> CompletableFuture.completedFuture(supplier.get()));
+    }
+
+    /**
+     * Starts the task as soon as fewer than the maximum are running
+     * The slot is released when the Future returned by the task completes, not when the
+     * task returns it.
+     */
+    @NonNull
+    public <T> CompletableFuture<T> submitAsync(@NonNull Supplier<CompletableFuture<T>> supplier) {
+        Task<T> task = new Task<>(supplier);
+        synchronized (this) {
+            if (running >= maxConcurrent) {
+                pending.add(task);
+                return task.future;
+            }
+            running++;
+        }
+        dispatch(task);
+        return task.future;
+    }
+
+    /**
+     * Returns the number of tasks waiting for a slot
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    private void dispatch(Task<?> task) {
+        while (task != null) {
+            Task<?> current = task;
+            try {
+                executor.execute(() -> current.run().whenComplete((ignored, error) -> {
+                    Task<?> next = next();
+                    if (next != null) {
+                        dispatch(next);
+                    }
+                }));
+                return;
+            } catch (RuntimeException e) {
+                // Rejected by the executor: fail this task and give its slot to the next one
+                current.future.completeExceptionally(e);
+                task = next();
+            }
+        }
+    }
+
+    /**
+     * Hands the finished task's slot to the next pending task, or releases it
+     */
+    private synchronized Task<?> next() {
+        Task<?> next = pending.poll();
+        if (next == null) {
+            running--;
+        }
+        return next;
+    }
+
+    private static final class Task<T> {
+        final Supplier<CompletableFuture<T>> supplier;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(Supplier<CompletableFuture<T>> supplier) {
+            this.supplier = supplier;
+        }
+
+        /**
+         * Starts the task; the returned Future completes with it
+         */
+        CompletableFuture<T> run() {
+            try {
+                supplier.get().whenComplete((value, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(value);
+                    }
+                });
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+            return future;
+        }
+    }
+}
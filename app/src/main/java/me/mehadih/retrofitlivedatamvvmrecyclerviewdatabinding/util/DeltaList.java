@@ -0,0 +1,60 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list produced by applying recorded changes to a base list
+ * A consumer still showing the exact base instance can replay {@link #getChanges()}
+ * instead of diffing the two lists; anyone else treats it as a plain list.
+ *
+ * The base is only weakly referenced so successive deltas do not keep every previous
+ * list alive.
+ *
+ * @param <T> The type of the list elements
+ */
+public final class DeltaList<T> extends AbstractList<T> implements RandomAccess {
+    private final List<T> items;
+    private final WeakReference<List<T>> base;
+    private final ListChanges changes;
+
+    /**
+     * @param items   The resulting elements, which must not be modified afterwards
+     * @param base    The list the changes were applied to
+     * @param changes The changes turning base into items
+     */
+    public DeltaList(@NonNull List<T> items, @NonNull List<T> base, @NonNull ListChanges changes) {
+        this.items = items;
+        this.base = new WeakReference<>(base);
+        this.changes = changes;
+    }
+
+    @Override
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns true when this list was derived from exactly that list instance
+     */
+    public boolean isBasedOn(List<T> list) {
+        return list != null && base.get() == list;
+    }
+
+    /**
+     * Returns the changes turning the base list into this one
+     */
+    @NonNull
+    public ListChanges getChanges() {
+        return changes;
+    }
+}
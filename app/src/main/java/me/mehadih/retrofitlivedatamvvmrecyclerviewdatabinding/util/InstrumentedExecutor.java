@@ -0,0 +1,115 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded thread pool with named threads and basic runtime statistics
+ * Replaces ad-hoc cached pools and raw Threads so background work has an upper bound
+ * on threads and queued tasks, and can be inspected while tuning.
+ *
+ * Tasks submitted while both the pool and the queue are full are rejected with
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public InstrumentedExecutor(@NonNull String name, int threads, int queueCapacity) {
+        super(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new NamedThreadFactory(name));
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        super.execute(new TimedTask(command));
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * Returns the average time tasks spent queued before starting, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long count = completedTasks.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * Returns the average time tasks spent running, in milliseconds
+     */
+    public double getAverageRunMillis() {
+        long count = completedTasks.get();
+        return count == 0 ? 0 : totalRunNanos.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * Returns the longest queue-plus-run time seen so far, in milliseconds
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "InstrumentedExecutor{active=%d, queued=%d, completed=%d, avgWait=%.1fms, avgRun=%.1fms, maxLatency=%.1fms}",
+                getActiveCount(), getQueueDepth(), completedTasks.get(),
+                getAverageWaitMillis(), getAverageRunMillis(), getMaxLatencyMillis());
+    }
+
+    private final class TimedTask implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedAt = System.nanoTime();
+
+        TimedTask(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            try {
+                delegate.run();
+            } finally {
+                long finishedAt = System.nanoTime();
+                totalWaitNanos.addAndGet(startedAt - enqueuedAt);
+                totalRunNanos.addAndGet(finishedAt - startedAt);
+                maxLatencyNanos.accumulateAndGet(finishedAt - enqueuedAt, Math::max);
+                completedTasks.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
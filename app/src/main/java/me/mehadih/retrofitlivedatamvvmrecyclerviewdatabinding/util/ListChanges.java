@@ -0,0 +1,159 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.Arrays;
+
+/**
+ * Recorded sequence of positional list updates
+ * Changes are recorded through the {@link ListUpdateCallback} methods, with adjacent
+ * insertions, removals and changes merged into ranges, and replayed in the same order with
+ * {@link #dispatchTo(ListUpdateCallback)}.
+ *
+ * Moves are recorded one by one. Change payloads are not recorded.
+ */
+public final class ListChanges implements ListUpdateCallback {
+    private static final int INSERTED = 0;
+    private static final int REMOVED = 1;
+    private static final int CHANGED = 2;
+    private static final int MOVED = 3;
+
+    /** Triples of (type, position, count), or (MOVED, from, to) */
+    private int[] operations = new int[12];
+    private int size;
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (isLast(INSERTED) && operations[size - 2] + operations[size - 1] == position) {
+            operations[size - 1] += count;
+        } else {
+            add(INSERTED, position, count);
+        }
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        if (isLast(REMOVED) && operations[size - 2] == position) {
+            operations[size - 1] += count;
+        } else {
+            add(REMOVED, position, count);
+        }
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        add(MOVED, fromPosition, toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        if (isLast(CHANGED) && operations[size - 2] + operations[size - 1] == position) {
+            operations[size - 1] += count;
+        } else {
+            add(CHANGED, position, count);
+        }
+    }
+
+    /**
+     * Returns true when no change was recorded
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of recorded range operations
+     */
+    public int getOperationCount() {
+        return size / 3;
+    }
+
+    /**
+     * Replays the recorded operations in order
+     */
+    public void dispatchTo(@NonNull ListUpdateCallback callback) {
+        for (int i = 0; i < size; i += 3) {
+            int position = operations[i + 1];
+            int count = operations[i + 2];
+            switch (operations[i]) {
+                case INSERTED:
+                    callback.onInserted(position, count);
+                    break;
+                case REMOVED:
+                    callback.onRemoved(position, count);
+                    break;
+                case MOVED:
+                    callback.onMoved(position, count);
+                    break;
+                default:
+                    callback.onChanged(position, count, null);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns, for each position of the changed list, the position it had in the original list
+     * Inserted and changed rows map to -1. Costs O(N) per recorded operation on a list of size N,
+     * without looking at the elements.
+     *
+     * @param oldSize Size of the list the changes were recorded against
+     */
+    @NonNull
+    public int[] getSourcePositions(int oldSize) {
+        int capacity = oldSize;
+        for (int i = 0; i < size; i += 3) {
+            if (operations[i] == INSERTED) {
+                capacity += operations[i + 2];
+            }
+        }
+        int[] positions = new int[capacity];
+        for (int i = 0; i < oldSize; i++) {
+            positions[i] = i;
+        }
+        int length = oldSize;
+        for (int i = 0; i < size; i += 3) {
+            int position = operations[i + 1];
+            int count = operations[i + 2];
+            switch (operations[i]) {
+                case INSERTED:
+                    System.arraycopy(positions, position, positions, position + count, length - position);
+                    Arrays.fill(positions, position, position + count, -1);
+                    length += count;
+                    break;
+                case REMOVED:
+                    System.arraycopy(positions, position + count, positions, position, length - position - count);
+                    length -= count;
+                    break;
+                case MOVED:
+                    // count holds the target position
+                    int moved = positions[position];
+                    if (position < count) {
+                        System.arraycopy(positions, position + 1, positions, position, count - position);
+                    } else {
+                        System.arraycopy(positions, count, positions, count + 1, position - count);
+                    }
+                    positions[count] = moved;
+                    break;
+                default:
+                    Arrays.fill(positions, position, position + count, -1);
+                    break;
+            }
+        }
+        return length == capacity ? positions : Arrays.copyOf(positions, length);
+    }
+
+    private boolean isLast(int type) {
+        return size > 0 && operations[size - 3] == type;
+    }
+
+    private void add(int type, int position, int count) {
+        if (size + 3 > operations.length) {
+            operations = Arrays.copyOf(operations, operations.length * 2);
+        }
+        operations[size++] = type;
+        operations[size++] = position;
+        operations[size++] = count;
+    }
+}
@@ -6,7 +6,7 @@ package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
  *
  * @param <T> The type of data
  */
-public sealed class Result<T> permits Result.Success, Result.Error, Result.Loading {
+public sealed class Result<T> permits Result.Success, Result.Error, Result.Loading, Result.NotModified {
     
     private Result() {}
 
@@ -48,5 +48,12 @@ public sealed class Result<T> permits Result.Success, Result.Error, Result.Loadi
     public static final class Loading<T> extends Result<T> {
         public Loading() {}
     }
+
+    /**
+     * The server confirmed that the data delivered by the previous Success is still current
+     */
+    public static final class NotModified<T> extends Result<T> {
+        public NotModified() {}
+    }
 }
 
@@ -0,0 +1,86 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent work by key
+ * While a task for a key is running, further callers for the same key receive the
+ * running task's Future instead of starting a new one. Once it completes, the next
+ * call starts a fresh task.
+ *
+ * @param <K> The type of the request key
+ * @param <V> The type of the result
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Runs the task on the executor, or joins the task already running for this key
+     */
+    @NonNull
+    public CompletableFuture<V> execute(@NonNull K key, @NonNull Executor executor, @NonNull Supplier<V> task) {
+        return executeAsync(key, executor, () -> CompletableFuture.completedFuture(task.get()));
+    }
+
+    /**
+     * Starts the task on the executor, or joins the task already running for this key
+     * The key stays in flight until the Future returned by the task completes, so work the
+     * task continues elsewhere, e.g. a retry scheduled after a backoff, is still shared.
+     */
+    @NonNull
+    public CompletableFuture<V> executeAsync(@NonNull K key, @NonNull Executor executor,
+                                             @NonNull Supplier<CompletableFuture<V>> task) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            return existing;
+        }
+
+        executedCount.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.get().whenComplete((value, error) -> {
+                        inFlight.remove(key, created);
+                        if (error != null) {
+                            created.completeExceptionally(error);
+                        } else {
+                            created.complete(value);
+                        }
+                    });
+                } catch (Throwable t) {
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected by the executor
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Returns the number of tasks actually started
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * Returns the number of calls that joined an already running task
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+}
@@ -0,0 +1,34 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel;
+
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+
+/**
+ * Which of the users screen's mutually exclusive layouts a {@link UserUiState} shows
+ */
+public enum UserScreen {
+    /** First load, nothing to show yet */
+    LOADING,
+    /** Users shown, possibly refreshing */
+    CONTENT,
+    /** Loaded, but nothing to show or no search match */
+    EMPTY,
+    /** Loading failed with nothing to show */
+    ERROR;
+
+    /**
+     * Returns the layout for a state; users on hand are shown even while refreshing or after an error
+     */
+    public static UserScreen of(UserUiState state) {
+        List<User> visibleUsers = state.getVisibleUsers();
+        if (visibleUsers != null && !visibleUsers.isEmpty()) {
+            return CONTENT;
+        } else if (state.getUsers() == null || state.isLoading() && state.getUsers().isEmpty()) {
+            return LOADING;
+        } else if (state.getErrorMessage() != null) {
+            return ERROR;
+        }
+        return EMPTY;
+    }
+}
@@ -0,0 +1,84 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+
+/**
+ * Immutable snapshot of everything the users screen shows
+ *
+ * Every change produces a new instance, and the {@code with} methods return the same
+ * instance when nothing changes, so observers can detect changes per field with a
+ * reference comparison. Lists are never mutated after being published.
+ */
+public final class UserUiState {
+    /** Before the first result: loading, with no list yet */
+    static final UserUiState INITIAL = new UserUiState(null, null, true, null);
+
+    @Nullable
+    private final List<User> users;
+    @Nullable
+    private final List<User> visibleUsers;
+    private final boolean loading;
+    @Nullable
+    private final String errorMessage;
+
+    private UserUiState(@Nullable List<User> users, @Nullable List<User> visibleUsers, boolean loading,
+                        @Nullable String errorMessage) {
+        this.users = users;
+        this.visibleUsers = visibleUsers;
+        this.loading = loading;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Returns every loaded user, or null before the first list arrived
+     */
+    @Nullable
+    public List<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Returns the users matching the search query, or all users when not searching
+     */
+    @Nullable
+    public List<User> getVisibleUsers() {
+        return visibleUsers;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Returns the error to show, or null when the last load succeeded
+     */
+    @Nullable
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    UserUiState withLoading(boolean loading) {
+        return loading == this.loading ? this : new UserUiState(users, visibleUsers, loading, errorMessage);
+    }
+
+    UserUiState withErrorMessage(@Nullable String errorMessage) {
+        return Objects.equals(errorMessage, this.errorMessage)
+                ? this
+                : new UserUiState(users, visibleUsers, loading, errorMessage);
+    }
+
+    UserUiState withUsers(List<User> users, List<User> visibleUsers) {
+        return users == this.users && visibleUsers == this.visibleUsers
+                ? this
+                : new UserUiState(users, visibleUsers, loading, errorMessage);
+    }
+
+    UserUiState withVisibleUsers(List<User> visibleUsers) {
+        return withUsers(users, visibleUsers);
+    }
+}
@@ -1,71 +1,342 @@
 package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel;
 
-import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
-import androidx.annotation.NonNull;
-import androidx.lifecycle.AndroidViewModel;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 
 import dagger.hilt.android.lifecycle.HiltViewModel;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.search.UserSearchIndex;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
 import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
 
 /**
  * ViewModel with dependency injection and proper state management
  * Uses Result wrapper for type-safe error handling (2025 best practice)
+ *
+ * Everything the screen shows is published as a single immutable {@link UserUiState}.
+ * The repository is only observed while the state has active observers: the first load
+ * starts when the screen first observes, results that arrive while it is stopped are
+ * not mapped (only the latest is, once it starts again), and the source is removed in
+ * onCleared so the singleton repository does not keep this ViewModel alive.
+ *
+ * The first load joins a fetch already in flight instead of starting another. Once the
+ * fetch of a load or refresh has published its result, {@code viewmodel.refresh_to_published}
+ * is recorded. onCleared cancels that stage and any queued index build or search, so no
+ * work is left running for a screen that is gone; the shared fetch itself goes on to fill
+ * the cache for the next one.
+ *
+ * Search runs against a {@link UserSearchIndex} rebuilt on the IO executor whenever a new
+ * list arrives, or updated for just the changed users when the list is a delta. A build
+ * still queued for an older list is cancelled. Queries are debounced so typing only
+ * searches once the user pauses. The index is held in {@link SnapshotCache}; if memory
+ * pressure evicts it, the next query rebuilds it. When the IO executor is full the index
+ * build is dropped, counted as {@code viewmodel.search_rejected}, and left to the next query.
  */
 @HiltViewModel
-public class UserViewModel extends AndroidViewModel {
+public class UserViewModel extends ViewModel {
+    /** Delay between the last keystroke and running the query */
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+    private static final SnapshotCache.Key<UserSearchIndex> SEARCH_INDEX = new SnapshotCache.Key<>("users.search_index");
     private final UserRepository repository;
-    private final MutableLiveData<List<User>> usersLiveData = new MutableLiveData<>();
-    private final MutableLiveData<String> errorMessageLiveData = new MutableLiveData<>();
-    private final MutableLiveData<Boolean> isLoadingLiveData = new MutableLiveData<>();
+    private final SnapshotCache snapshotCache;
+    private final InstrumentedExecutor ioExecutor;
+    private final MetricsRegistry metrics;
+    private final MediatorLiveData<UserUiState> uiState = new MediatorLiveData<UserUiState>() {
+        @Override
+        protected void onActive() {
+            super.onActive();
+            if (source == null) {
+                loadUsers();
+            }
+        }
+    };
+    /** Search results computed on the IO executor, applied to the state on the main thread */
+    private final MutableLiveData<SearchResults> searchResultsLiveData = new MutableLiveData<>();
+    private final LiveData<List<User>> usersLiveData = select(UserUiState::getUsers);
+    private final LiveData<List<User>> visibleUsersLiveData = select(UserUiState::getVisibleUsers);
+    private final LiveData<String> errorMessageLiveData = select(UserUiState::getErrorMessage);
+    private final LiveData<Boolean> isLoadingLiveData = select(UserUiState::isLoading);
+    private final Runnable debouncedSearch = this::runSearch;
+    /** Repository stream, attached on first activation */
+    private LiveData<Result<List<User>>> source;
+    private Handler searchHandler;
+    private volatile String searchQuery = "";
+    /** Bumped for every new list; searches for an older generation are dropped */
+    private volatile int indexGeneration;
+    /** Generation whose first index build finished, and applied the query of the time */
+    private volatile int indexedGeneration;
+    /** When the pending load or refresh started, 0 once its first result was handled */
+    private long refreshStartedAt;
+    /** This ViewModel's stage of the fetch of its last load or refresh */
+    @Nullable
+    private CompletableFuture<Void> fetchStage;
+    /** Index build and search queued or running on the IO executor for this ViewModel */
+    @Nullable
+    private Future<?> indexTask;
+    @Nullable
+    private Future<?> searchTask;
 
     @Inject
-    public UserViewModel(@NonNull Application application, UserRepository repository) {
-        super(application);
+    public UserViewModel(UserRepository repository, SnapshotCache snapshotCache, InstrumentedExecutor ioExecutor,
+                         MetricsRegistry metrics) {
         this.repository = repository;
-        loadUsers();
+        this.snapshotCache = snapshotCache;
+        this.ioExecutor = ioExecutor;
+        this.metrics = metrics;
+        uiState.setValue(UserUiState.INITIAL);
+        uiState.addSource(searchResultsLiveData, this::applySearchResults);
     }
 
     /**
-     * Loads users from repository and maps Result to separate LiveData streams
-     * Observes repository LiveData and transforms Result into separate streams
+     * Starts loading users and maps each repository Result into the UI state
+     * Called on the main thread when the state is first observed.
      */
     private void loadUsers() {
-        // Observe repository LiveData (ViewModel constructor runs on main thread)
-        repository.getUsers().observeForever(result -> {
-            if (result instanceof Result.Loading) {
-                isLoadingLiveData.setValue(true);
-                errorMessageLiveData.setValue(null);
-            } else if (result instanceof Result.Success) {
-                isLoadingLiveData.setValue(false);
-                List<User> users = ((Result.Success<List<User>>) result).getData();
-                usersLiveData.setValue(users != null ? users : new ArrayList<>());
-                errorMessageLiveData.setValue(null);
-            } else if (result instanceof Result.Error) {
-                isLoadingLiveData.setValue(false);
-                String errorMsg = ((Result.Error<List<User>>) result).getMessage();
-                errorMessageLiveData.setValue(errorMsg != null ? errorMsg : "An error occurred");
-                usersLiveData.setValue(new ArrayList<>());
+        refreshStartedAt = System.nanoTime();
+        if (repository.isPagingEnabled()) {
+            source = repository.getUserPages();
+        } else {
+            // Starts a fetch unless one is in flight, and follows whichever it is
+            source = repository.getUsers();
+            followFetch(repository.getFetchInFlight());
+        }
+        uiState.addSource(source, this::onResult);
+    }
+
+    /**
+     * Records when the fetch has published its result, replacing the stage of an earlier fetch
+     */
+    private void followFetch(@Nullable CompletableFuture<Result<List<User>>> fetch) {
+        if (fetchStage != null) {
+            fetchStage.cancel(false);
+        }
+        long startedAt = refreshStartedAt;
+        fetchStage = fetch == null ? null : fetch.thenAccept(
+                published -> metrics.recordSince("viewmodel.refresh_to_published", startedAt));
+    }
+
+    private void onResult(Result<List<User>> result) {
+        UserUiState state = uiState.getValue();
+        if (result instanceof Result.Loading) {
+            uiState.setValue(state.withLoading(true).withErrorMessage(null));
+        } else if (result instanceof Result.Success) {
+            recordRefreshTime();
+            List<User> users = ((Result.Success<List<User>>) result).getData();
+            state = state.withLoading(false).withErrorMessage(null);
+            // The repository re-emits its cached snapshot when revalidation finds no changes
+            if (users == null || users != state.getUsers()) {
+                state = withUsers(state, users != null ? users : new ArrayList<>());
+            }
+            uiState.setValue(state);
+        } else if (result instanceof Result.Error) {
+            recordRefreshTime();
+            String errorMsg = ((Result.Error<List<User>>) result).getMessage();
+            uiState.setValue(withUsers(state.withLoading(false)
+                    .withErrorMessage(errorMsg != null ? errorMsg : "An error occurred"), new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Returns a view of one state field that only emits when that field changes
+     */
+    private <T> LiveData<T> select(Function<UserUiState, T> field) {
+        MediatorLiveData<T> selected = new MediatorLiveData<>();
+        selected.addSource(uiState, state -> {
+            T value = field.apply(state);
+            if (value != selected.getValue()) {
+                selected.setValue(value);
+            }
+        });
+        return selected;
+    }
+
+    /**
+     * Records the time from a load or refresh request to its first list or error
+     */
+    private void recordRefreshTime() {
+        if (refreshStartedAt != 0) {
+            metrics.recordSince("viewmodel.refresh_to_emission", refreshStartedAt);
+            refreshStartedAt = 0;
+        }
+    }
+
+    /**
+     * Returns the state with a new list and rebuilds the search index for it off the main thread
+     */
+    private UserUiState withUsers(UserUiState state, List<User> users) {
+        int generation = ++indexGeneration;
+        // While searching, the previous results stay visible until the new index answers
+        state = state.withUsers(users, searchQuery.isEmpty() ? users : state.getVisibleUsers());
+
+        cancel(indexTask);
+        indexTask = runInBackground(() -> {
+            UserSearchIndex index = indexFor(users, generation);
+            if (index == null) {
+                return;
+            }
+            indexedGeneration = generation;
+            String query = searchQuery;
+            if (!query.isEmpty()) {
+                publishSearchResults(index, generation, query);
             }
         });
+        if (indexTask == null) {
+            // Let the next query build the index itself
+            indexedGeneration = generation;
+            if (!searchQuery.isEmpty()) {
+                searchHandler.postDelayed(debouncedSearch, SEARCH_DEBOUNCE_MILLIS);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Returns the cached index for the list, building or updating and caching it when it is missing
+     * Returns null when a newer list arrived, or the ViewModel was cleared, while indexing.
+     */
+    private UserSearchIndex indexFor(List<User> users, int generation) {
+        UserSearchIndex index = snapshotCache.get(SEARCH_INDEX);
+        if (index != null && index.isFor(users)) {
+            return index;
+        }
+        index = index != null ? index.update(users) : UserSearchIndex.build(users);
+        if (generation != indexGeneration) {
+            return null;
+        }
+        snapshotCache.put(SEARCH_INDEX, index, index.estimateSizeBytes());
+        return index;
+    }
+
+    /**
+     * Returns everything the screen shows as one immutable state
+     */
+    public LiveData<UserUiState> getUiState() {
+        return uiState;
     }
 
     /**
      * Returns the list of users
+     * Like the other field getters, a view of {@link #getUiState()} that only emits on change.
      */
     public LiveData<List<User>> getAllUsers() {
         return usersLiveData;
     }
 
+    /**
+     * Returns the users matching the current search query, or all users when there is none
+     */
+    public LiveData<List<User>> getVisibleUsers() {
+        return visibleUsersLiveData;
+    }
+
+    /**
+     * Filters the visible users by name, username or email prefix
+     * Must be called on the main thread; the query runs after a short debounce.
+     */
+    public void setSearchQuery(String query) {
+        String normalized = query != null ? query.trim() : "";
+        if (normalized.equals(searchQuery)) {
+            return;
+        }
+        searchQuery = normalized;
+        if (searchHandler == null) {
+            searchHandler = new Handler(Looper.getMainLooper());
+        }
+        searchHandler.removeCallbacks(debouncedSearch);
+        if (normalized.isEmpty()) {
+            UserUiState state = uiState.getValue();
+            uiState.setValue(state.withVisibleUsers(state.getUsers()));
+        } else {
+            searchHandler.postDelayed(debouncedSearch, SEARCH_DEBOUNCE_MILLIS);
+        }
+    }
+
+    /**
+     * Returns the current search query, empty when not searching
+     */
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+
+    private void runSearch() {
+        String query = searchQuery;
+        int generation = indexGeneration;
+        List<User> users = uiState.getValue().getUsers();
+        if (users == null || query.isEmpty() || indexedGeneration != generation) {
+            // The index build applies the latest query when it finishes
+            return;
+        }
+        cancel(searchTask);
+        searchTask = runInBackground(() -> {
+            UserSearchIndex index = indexFor(users, generation);
+            if (index != null) {
+                publishSearchResults(index, generation, query);
+            }
+        });
+    }
+
+    /**
+     * Runs search work on the IO executor, returning null when the executor is full
+     */
+    @Nullable
+    private Future<?> runInBackground(Runnable task) {
+        try {
+            return ioExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            metrics.increment("viewmodel.search_rejected");
+            return null;
+        }
+    }
+
+    /**
+     * Keeps a queued task from running; one already running finishes but its result is dropped
+     */
+    private static void cancel(@Nullable Future<?> task) {
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Returns true while this ViewModel has a fetch stage, index build or search not yet done
+     */
+    boolean hasPendingWork() {
+        return isPending(fetchStage) || isPending(indexTask) || isPending(searchTask);
+    }
+
+    private static boolean isPending(@Nullable Future<?> task) {
+        return task != null && !task.isDone();
+    }
+
+    private void publishSearchResults(UserSearchIndex index, int generation, String query) {
+        searchResultsLiveData.postValue(new SearchResults(generation, query, index.search(query)));
+    }
+
+    private void applySearchResults(SearchResults results) {
+        // Drop results for a query or list that was replaced while searching
+        if (results.query.equals(searchQuery) && results.generation == indexGeneration) {
+            uiState.setValue(uiState.getValue().withVisibleUsers(results.users));
+        }
+    }
+
     /**
      * Returns error messages
      */
@@ -84,6 +355,50 @@ public class UserViewModel extends AndroidViewModel {
      * Refreshes the user list
      */
     public void refreshUsers() {
-        repository.refreshUsers();
+        refreshStartedAt = System.nanoTime();
+        // Loading until the next result, which the repository emits even when nothing changed
+        uiState.setValue(uiState.getValue().withLoading(true));
+        if (repository.isPagingEnabled()) {
+            repository.refreshUserPages();
+        } else {
+            followFetch(repository.refreshUsers());
+        }
+    }
+
+    /**
+     * Requests the next page of users when paged loading is enabled
+     */
+    public void loadNextPage() {
+        if (repository.isPagingEnabled()) {
+            repository.loadNextPage();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        if (searchHandler != null) {
+            searchHandler.removeCallbacks(debouncedSearch);
+        }
+        if (source != null) {
+            uiState.removeSource(source);
+        }
+        cancel(fetchStage);
+        cancel(indexTask);
+        cancel(searchTask);
+        // Drops the result of an index build already running
+        indexGeneration++;
+        snapshotCache.remove(SEARCH_INDEX);
+    }
+
+    private static final class SearchResults {
+        final int generation;
+        final String query;
+        final List<User> users;
+
+        SearchResults(int generation, String query, List<User> users) {
+            this.generation = generation;
+            this.query = query;
+            this.users = users;
+        }
     }
 }
@@ -0,0 +1,116 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.adapter;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Dispatching only the latest submitted list, and replacing the list when diffing is rejected
+ *
+ * The diff and main thread executors are queues the test drains, so it decides when
+ * each diff finishes and when its result reaches the main thread.
+ */
+public class UserListDifferTest {
+    private final Queue<Runnable> diffTasks = new ArrayDeque<>();
+    private final Queue<Runnable> mainTasks = new ArrayDeque<>();
+    private final List<String> updates = new ArrayList<>();
+
+    @Test
+    public void onlyTheLatestListIsDispatched() {
+        UserListDiffer differ = new UserListDiffer(recorder(), diffTasks::add, mainTasks::add);
+        List<User> first = TestData.users(10);
+        List<User> second = TestData.users(20);
+
+        differ.submitList(first);
+        differ.submitList(second);
+        runAll(diffTasks);
+        runAll(mainTasks);
+
+        assertSame(second, differ.getCurrentList());
+        assertEquals(20, differ.getCurrentItems().size());
+        assertEquals(Arrays.asList("inserted 0+20"), updates);
+    }
+
+    @Test
+    public void rejectedDiffReplacesTheList() {
+        List<User> first = TestData.users(10);
+        List<User> second = TestData.users(20);
+        UserListDiffer differ = new UserListDiffer(recorder(), task -> {
+            throw new RejectedExecutionException("full");
+        }, mainTasks::add);
+
+        differ.submitList(first);
+        differ.submitList(second);
+
+        assertSame(second, differ.getCurrentList());
+        assertEquals(20, differ.getCurrentItems().size());
+        assertEquals(Arrays.asList("inserted 0+10", "removed 0+10", "inserted 0+20"), updates);
+        assertTrue(mainTasks.isEmpty());
+    }
+
+    @Test
+    public void rejectedDiffOutdatesTheQueuedOne() {
+        boolean[] rejecting = {false};
+        UserListDiffer differ = new UserListDiffer(recorder(), task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("full");
+            }
+            diffTasks.add(task);
+        }, mainTasks::add);
+        List<User> second = TestData.users(20);
+
+        differ.submitList(TestData.users(10));
+        rejecting[0] = true;
+        differ.submitList(second);
+        runAll(diffTasks);
+        runAll(mainTasks);
+
+        assertSame(second, differ.getCurrentList());
+        assertEquals(Arrays.asList("inserted 0+20"), updates);
+    }
+
+    private ListUpdateCallback recorder() {
+        return new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add("inserted " + position + "+" + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add("removed " + position + "+" + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.add("moved " + fromPosition + "->" + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updates.add("changed " + position + "+" + count);
+            }
+        };
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di.NetworkModule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Retry and circuit breaker behaviour of ApiService against a stand-in server
+ *
+ * The server fails a configurable number of requests before recovering. Transient
+ * failures must be retried away, Retry-After must be honored, and a sustained outage must
+ * open the breaker so later calls fail fast without reaching the server.
+ */
+public class ApiResilienceTest {
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule(8);
+
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile MockResponse failure = new MockResponse().setResponseCode(503);
+    private MockWebServer server;
+
+    @Before
+    public void setUp() {
+        String payload = new Gson().toJson(TestData.users(100));
+        server = standIn.server();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return failuresLeft.getAndDecrement() > 0 ? failure : new MockResponse().setBody(payload);
+            }
+        });
+    }
+
+    @Test
+    public void transientFailuresAreRetried() throws Exception {
+        failuresLeft.set(2);
+        ApiService apiService = apiService(() -> new RetryPolicy(3, 50, 500, 0.1, 10), CircuitBreaker::defaults);
+
+        Result<List<User>> result = apiService.getUsersStreamingAsync(null).get(10, TimeUnit.SECONDS);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, standIn.metrics().getCounters().get("api.retry").longValue());
+    }
+
+    @Test
+    public void retryAfterIsHonored() throws Exception {
+        failuresLeft.set(1);
+        failure = new MockResponse().setResponseCode(429).setHeader("Retry-After", "1");
+        ApiService apiService = apiService(() -> new RetryPolicy(3, 10, 2_000, 0.1, 10), CircuitBreaker::defaults);
+
+        long start = System.nanoTime();
+        Result<List<User>> result = apiService.getUsersStreamingAsync(null).get(10, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result instanceof Result.Success);
+        assertTrue("Retried after " + elapsedMillis + " ms", elapsedMillis >= 1_000);
+    }
+
+    @Test
+    public void backoffDoesNotHoldAnIoThread() throws Exception {
+        failuresLeft.set(1);
+        failure = new MockResponse().setResponseCode(429).setHeader("Retry-After", "1");
+        InstrumentedExecutor oneThread = new InstrumentedExecutor("single-io", 1, 16);
+        try {
+            ApiService apiService = new ApiService(standIn.api(), oneThread, standIn.metrics(),
+                    NetworkModule.createWireFormats(), () -> new RetryPolicy(3, 10, 2_000, 0.1, 10),
+                    CircuitBreaker::defaults);
+
+            CompletableFuture<Result<List<User>>> backingOff = apiService.getUsersPageAsync(1, 10);
+            Thread.sleep(100);
+            long start = System.nanoTime();
+            assertTrue(apiService.getUsersPageAsync(2, 10).get(10, TimeUnit.SECONDS) instanceof Result.Success);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue("Waited " + elapsedMillis + " ms behind the backoff", elapsedMillis < 500);
+            assertTrue(backingOff.get(10, TimeUnit.SECONDS) instanceof Result.Success);
+        } finally {
+            oneThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void outageOpensBreakerAndBudgetLimitsRetries() throws Exception {
+        failuresLeft.set(Integer.MAX_VALUE);
+        ApiService apiService = apiService(() -> new RetryPolicy(3, 10, 100, 0.1, 4),
+                () -> new CircuitBreaker(10, 60_000, 60_000));
+
+        // Concurrent callers hitting a dead backend: retries are capped by the budget
+        int callers = 8;
+        List<CompletableFuture<Result<List<User>>>> calls = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            calls.add(apiService.getUsersPageAsync(i, 10));
+        }
+        for (CompletableFuture<Result<List<User>>> call : calls) {
+            assertTrue(call.get(10, TimeUnit.SECONDS) instanceof Result.Error);
+        }
+        int requestsDuringOutage = server.getRequestCount();
+        assertTrue("Made " + requestsDuringOutage + " requests", requestsDuringOutage <= callers + 4);
+
+        // Once open, calls fail fast without reaching the server
+        Result<List<User>> result = apiService.getUsersPageAsync(100, 10).get(10, TimeUnit.SECONDS);
+        assertTrue(result instanceof Result.Error);
+        assertEquals(requestsDuringOutage, server.getRequestCount());
+    }
+
+    @Test
+    public void breakerClosesAfterSuccessfulProbe() throws Exception {
+        failuresLeft.set(2);
+        ApiService apiService = apiService(RetryPolicy::none, () -> new CircuitBreaker(2, 200, 200));
+
+        assertTrue(apiService.getUsersPageAsync(1, 10).get(10, TimeUnit.SECONDS) instanceof Result.Error);
+        assertTrue(apiService.getUsersPageAsync(2, 10).get(10, TimeUnit.SECONDS) instanceof Result.Error);
+        assertTrue(apiService.getUsersPageAsync(3, 10).get(10, TimeUnit.SECONDS) instanceof Result.Error);
+        assertEquals(2, server.getRequestCount());
+
+        Thread.sleep(250);
+        assertTrue(apiService.getUsersPageAsync(4, 10).get(10, TimeUnit.SECONDS) instanceof Result.Success);
+        assertTrue(apiService.getUsersPageAsync(5, 10).get(10, TimeUnit.SECONDS) instanceof Result.Success);
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void probeRejectedByConverterReopensBreaker() throws Exception {
+        failuresLeft.set(2);
+        ApiService apiService = apiService(RetryPolicy::none, () -> new CircuitBreaker(2, 200, 200));
+        assertTrue(apiService.getUsersPageAsync(1, 10).get(10, TimeUnit.SECONDS) instanceof Result.Error);
+        assertTrue(apiService.getUsersPageAsync(2, 10).get(10, TimeUnit.SECONDS) instanceof Result.Error);
+
+        // The probe gets a 200 whose body the converter cannot read
+        failure = new MockResponse().setBody("{}");
+        failuresLeft.set(1);
+        Thread.sleep(250);
+        assertTrue(apiService.getUsersPageAsync(3, 10).get(10, TimeUnit.SECONDS) instanceof Result.Error);
+        assertEquals(3, server.getRequestCount());
+
+        // Reopened rather than stuck half-open: the next probe goes through and closes it
+        Thread.sleep(250);
+        assertTrue(apiService.getUsersPageAsync(4, 10).get(10, TimeUnit.SECONDS) instanceof Result.Success);
+        assertTrue(apiService.getUsersPageAsync(5, 10).get(10, TimeUnit.SECONDS) instanceof Result.Success);
+        assertEquals(5, server.getRequestCount());
+    }
+
+    private ApiService apiService(Supplier<RetryPolicy> retryPolicies, Supplier<CircuitBreaker> circuitBreakers) {
+        return standIn.apiService(retryPolicies, circuitBreakers);
+    }
+}
@@ -0,0 +1,240 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import java.util.Random;
+import java.util.TreeMap;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Response compression chosen by CompressionInterceptor against a stand-in server
+ *
+ * The server gzips JSON bodies when the request accepts gzip and declines every other
+ * encoding. Bodies must decode identically on every client path, and on a throttled link
+ * the interceptor must settle on gzip. Cache hits must not be measured, and what was
+ * learned about one content type must not decide the encoding of another. A checked-in
+ * Brotli body (TestData.usersJson(20), encoded at quality 11) checks the Brotli decoder.
+ */
+public class CompressionNegotiationTest {
+    private static final int USERS = 5_000;
+    private static final int REQUESTS = 40;
+    /** About 3 Mbit/s */
+    private static final long THROTTLE_BYTES_PER_10_MS = 4 * 1024;
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final String json = TestData.usersJson(USERS);
+    private final Buffer gzipped = gzip(json);
+    private volatile boolean throttled;
+    private MockWebServer server;
+    private MetricsRegistry metrics;
+    private ApiService apiService;
+
+    @Before
+    public void setUp() {
+        server = standIn.server();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                String acceptEncoding = request.getHeader("Accept-Encoding");
+                MockResponse response = acceptEncoding != null && acceptEncoding.contains("gzip")
+                        ? new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzipped.clone())
+                        : new MockResponse().setBody(json);
+                return throttled ? response.throttleBody(THROTTLE_BYTES_PER_10_MS, 10, TimeUnit.MILLISECONDS) : response;
+            }
+        });
+        metrics = standIn.metrics();
+        apiService = standIn.apiService();
+    }
+
+    @Test
+    public void decodesOnEveryPath() throws Exception {
+        List<User> expected = TestData.users(USERS);
+        // Brotli is tried first and declined, then gzip
+        for (int page = 1; page <= 3; page++) {
+            assertEquals(expected, data(apiService.getUsersPageAsync(page, USERS).get(30, TimeUnit.SECONDS)));
+        }
+        assertEquals(expected, data(apiService.getUsersStreamingAsync(null).get(30, TimeUnit.SECONDS)));
+        assertEquals("br", server.takeRequest().getHeader("Accept-Encoding"));
+        assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+
+        Map<String, Long> counters = metrics.getCounters();
+        assertTrue(counters.get("compression.gzip.wire_bytes") < counters.get("compression.gzip.decoded_bytes"));
+        assertTrue(metrics.getHistograms().get("compression.gzip.decode").getCount() > 0);
+    }
+
+    @Test
+    public void decodesBrotli() throws Exception {
+        Buffer brotli = resource("users-20.json.br");
+        long wireBytes = brotli.size();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return new MockResponse().setHeader("Content-Type", "application/json")
+                        .setHeader("Content-Encoding", "br").setBody(brotli.clone());
+            }
+        });
+        String expected = TestData.usersJson(20);
+
+        try (Response response = standIn.client().newCall(
+                new Request.Builder().url(server.url("/users")).build()).execute()) {
+            assertEquals(expected, response.body().string());
+            assertNull(response.header("Content-Encoding"));
+            assertNull(response.header("Content-Length"));
+        }
+
+        assertEquals("br", server.takeRequest().getHeader("Accept-Encoding"));
+        Map<String, Long> counters = metrics.getCounters();
+        assertEquals(wireBytes, counters.get("compression.br.wire_bytes").longValue());
+        assertEquals(expected.length(), counters.get("compression.br.decoded_bytes").longValue());
+        assertEquals((double) wireBytes / expected.length(), metrics.getGauges().get("compression.ratio.br"), 1e-9);
+    }
+
+    @Test
+    public void slowLinkSettlesOnGzip() throws Exception {
+        throttled = true;
+        int gzipChosen = 0;
+        StringBuilder choices = new StringBuilder();
+        for (int page = 1; page <= REQUESTS; page++) {
+            assertEquals(USERS, data(apiService.getUsersPageAsync(page, USERS).get(60, TimeUnit.SECONDS)).size());
+            String encoding = server.takeRequest().getHeader("Accept-Encoding");
+            choices.append(encoding.charAt(0));
+            if (page > 2 && "gzip".equals(encoding)) {
+                gzipChosen++;
+            }
+        }
+        assertTrue("Encodings chosen: " + choices, gzipChosen >= (REQUESTS - 2) * 0.8);
+    }
+
+    @Test
+    public void cacheHitsAreNotMeasured() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                String acceptEncoding = request.getHeader("Accept-Encoding");
+                MockResponse response = acceptEncoding != null && acceptEncoding.contains("gzip")
+                        ? new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzipped.clone())
+                        : new MockResponse().setBody(json);
+                return response.setHeader("Cache-Control", "max-age=60").setHeader("Vary", "Accept-Encoding");
+            }
+        });
+        Request request = new Request.Builder().url(server.url("/users")).build();
+
+        assertEquals(json, fetch(request));
+        Map<String, Long> afterDownload = compressionCounters();
+        try (Response cached = standIn.client().newCall(request).execute()) {
+            assertEquals(json, cached.body().string());
+            assertNotNull("Not served from the cache", cached.cacheResponse());
+        }
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(afterDownload, compressionCounters());
+    }
+
+    @Test
+    public void estimatesArePerContentType() throws Exception {
+        byte[] incompressible = new byte[64 * 1024];
+        new Random(1).nextBytes(incompressible);
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                if (request.getPath().startsWith("/blob")) {
+                    // Declines every encoding
+                    return new MockResponse().setHeader("Content-Type", "application/octet-stream")
+                            .setBody(new Buffer().write(incompressible));
+                }
+                String acceptEncoding = request.getHeader("Accept-Encoding");
+                MockResponse response = acceptEncoding != null && acceptEncoding.contains("gzip")
+                        ? new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzipped.clone())
+                        : new MockResponse().setBody(json);
+                return response.setHeader("Content-Type", "application/json");
+            }
+        });
+
+        // Brotli and gzip are both declined for blobs, which then go uncompressed
+        for (int i = 0; i < 3; i++) {
+            fetch(new Request.Builder().url(server.url("/blob")).build());
+        }
+        assertEquals("br", server.takeRequest().getHeader("Accept-Encoding"));
+        assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+        assertEquals("identity", server.takeRequest().getHeader("Accept-Encoding"));
+
+        // JSON from the same host still gets to try gzip
+        Request users = new Request.Builder().url(server.url("/users")).build();
+        assertEquals(json, fetch(users));
+        assertEquals(json, fetch(users));
+        assertEquals("br", server.takeRequest().getHeader("Accept-Encoding"));
+        assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+    }
+
+    private String fetch(Request request) throws IOException {
+        try (Response response = standIn.client().newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+
+    private Map<String, Long> compressionCounters() {
+        Map<String, Long> counters = new TreeMap<>(metrics.getCounters());
+        counters.keySet().removeIf(name -> !name.startsWith("compression."));
+        return counters;
+    }
+
+    private static List<User> data(Result<List<User>> result) {
+        assertTrue(String.valueOf(result), result instanceof Result.Success);
+        return ((Result.Success<List<User>>) result).getData();
+    }
+
+    private Buffer resource(String name) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            assertNotNull("Missing fixture " + name, in);
+            Buffer buffer = new Buffer();
+            buffer.readFrom(in);
+            return buffer;
+        }
+    }
+
+    private static Buffer gzip(String text) {
+        Buffer buffer = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.writeUtf8(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,168 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Album;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Post;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.Todo;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserResources;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fan-out of posts, todos and albums lookups against a stand-in server
+ *
+ * Every lookup takes a fixed latency. Batched lookups must cover all requested users,
+ * run concurrently without exceeding the limit, finish in a fraction of the serial time,
+ * and survive a failing endpoint with a partial result. ApiService runs with the
+ * production retry policy and circuit breaker.
+ */
+public class UserResourcesFanOutTest {
+    private static final int USERS = 200;
+    private static final long LATENCY_MILLIS = 100;
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final Gson gson = new Gson();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+    private volatile String failingPath;
+
+    @Before
+    public void setUp() {
+        standIn.server().setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(LATENCY_MILLIS);
+                    HttpUrl url = request.getRequestUrl();
+                    if (url == null || url.encodedPath().equals(failingPath)) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                    return new MockResponse().setBody(respond(url));
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void fetchesAllResourcesConcurrently() throws Exception {
+        ApiService apiService = apiService();
+
+        long start = System.nanoTime();
+        Result<UserResources> result = apiService.getUserResourcesAsync(userIds()).get(30, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result instanceof Result.Success);
+        UserResources resources = ((Result.Success<UserResources>) result).getData();
+        assertTrue(resources.isComplete());
+        for (int id = 1; id <= USERS; id++) {
+            assertEquals(id % 3 + 1, resources.getPosts(id).size());
+            assertEquals(id % 5 + 1, resources.getTodos(id).size());
+            assertEquals(1, resources.getAlbums(id).size());
+        }
+        int requests = standIn.server().getRequestCount();
+        assertTrue("Made " + requests + " requests", requests < USERS);
+        assertTrue("Peak concurrency " + peakRunning.get(), peakRunning.get() <= 3);
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < requests * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void failingEndpointGivesPartialResult() throws Exception {
+        failingPath = "/todos";
+        ApiService apiService = apiService();
+
+        Result<UserResources> result = apiService.getUserResourcesAsync(userIds()).get(30, TimeUnit.SECONDS);
+
+        assertTrue(result instanceof Result.Success);
+        UserResources resources = ((Result.Success<UserResources>) result).getData();
+        assertFalse(resources.isComplete());
+        assertFalse(resources.isComplete(1));
+        assertEquals(2, resources.getPosts(1).size());
+        assertEquals(0, resources.getTodos(1).size());
+        assertFalse(resources.getErrors().isEmpty());
+    }
+
+    @Test
+    public void failingEndpointOnlyOpensItsOwnBreaker() throws Exception {
+        failingPath = "/todos";
+        ApiService apiService = apiService();
+        // Enough failing todos lookups, with their retries, to open a breaker
+        apiService.getUserResourcesAsync(userIds()).get(30, TimeUnit.SECONDS);
+        apiService.getUserResourcesAsync(userIds()).get(30, TimeUnit.SECONDS);
+        assertTrue(standIn.metrics().getCounters().get("api.circuit_open") > 0);
+
+        Result<UserResources> result = apiService.getUserResourcesAsync(userIds()).get(30, TimeUnit.SECONDS);
+
+        assertTrue(result instanceof Result.Success);
+        UserResources resources = ((Result.Success<UserResources>) result).getData();
+        for (int id = 1; id <= USERS; id++) {
+            assertEquals(id % 3 + 1, resources.getPosts(id).size());
+            assertEquals(1, resources.getAlbums(id).size());
+            assertEquals(0, resources.getTodos(id).size());
+        }
+        assertEquals(USERS / 50, resources.getErrors().size());
+    }
+
+    private ApiService apiService() {
+        return standIn.apiService();
+    }
+
+    private static List<Integer> userIds() {
+        List<Integer> ids = new ArrayList<>(USERS);
+        for (int id = 1; id <= USERS; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Gives user n (n % 3 + 1) posts, (n % 5 + 1) todos and one album
+     */
+    private String respond(HttpUrl url) {
+        List<Object> items = new ArrayList<>();
+        for (String value : url.queryParameterValues("userId")) {
+            int userId = Integer.parseInt(value);
+            switch (url.encodedPath()) {
+                case "/posts":
+                    for (int i = 0; i <= userId % 3; i++) {
+                        items.add(new Post(userId, userId * 10 + i, "Post " + i, "Body"));
+                    }
+                    break;
+                case "/todos":
+                    for (int i = 0; i <= userId % 5; i++) {
+                        items.add(new Todo(userId, userId * 10 + i, "Todo " + i, i % 2 == 0));
+                    }
+                    break;
+                default:
+                    items.add(new Album(userId, userId, "Album"));
+                    break;
+            }
+        }
+        return gson.toJson(items);
+    }
+}
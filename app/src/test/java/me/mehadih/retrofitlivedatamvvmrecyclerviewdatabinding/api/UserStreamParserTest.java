@@ -0,0 +1,88 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Progress reporting of UserStreamParser, and empty and truncated bodies
+ */
+public class UserStreamParserTest {
+    private final UserStreamParser parser = new UserStreamParser(new Gson(), 20);
+    private final List<Integer> progress = new ArrayList<>();
+
+    @Test
+    public void reportsTheFirstChunkThenEachDoubling() throws Exception {
+        List<User> users = parser.parse(new StringReader(TestData.usersJson(1_000)),
+                usersSoFar -> progress.add(usersSoFar.size()));
+
+        assertEquals(TestData.users(1_000), users);
+        assertEquals(Arrays.asList(20, 40, 80, 160, 320, 640), progress);
+    }
+
+    @Test
+    public void deliversTheFirstChunkBeforeTheStreamEnds() throws Exception {
+        String json = TestData.usersJson(1_000);
+        CountingReader reader = new CountingReader(new StringReader(json));
+        List<Long> readAtReport = new ArrayList<>();
+
+        parser.parse(reader, usersSoFar -> readAtReport.add(reader.charsRead));
+
+        assertTrue("Read " + readAtReport.get(0) + " of " + json.length() + " chars",
+                readAtReport.get(0) < json.length() / 10);
+    }
+
+    @Test
+    public void emptyArrayParsesWithoutProgress() throws Exception {
+        List<User> users = parser.parse(new StringReader("[]"), usersSoFar -> progress.add(usersSoFar.size()));
+
+        assertTrue(users.isEmpty());
+        assertTrue(progress.isEmpty());
+    }
+
+    @Test
+    public void truncatedBodyFailsAfterReportingWhatArrived() {
+        // Cut off inside the 30th user
+        String json = TestData.usersJson(30);
+        String truncated = json.substring(0, json.length() - 10);
+
+        assertThrows(IOException.class, () -> parser.parse(new StringReader(truncated),
+                usersSoFar -> progress.add(usersSoFar.size())));
+        assertEquals(Arrays.asList(20), progress);
+    }
+
+    /**
+     * Counts the chars handed to the parser so far
+     */
+    private static final class CountingReader extends FilterReader {
+        long charsRead;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                charsRead += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di.NetworkModule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.UserFormatDispatcher;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Utf8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Content negotiation between the JSON and protobuf user list encodings
+ *
+ * A stand-in server answers with protobuf when the Accept header allows it and with JSON
+ * otherwise, or always with JSON when it does not support protobuf. Every client path
+ * (paged and streamed) must decode either answer to the same users. Streamed users are
+ * also decoded by any other format ApiService is given.
+ */
+public class UserWireFormatTest {
+    private static final int USERS = 1_000;
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final UserFormatDispatcher dispatcher = new UserFormatDispatcher(USERS);
+    private ApiService apiService;
+
+    @Before
+    public void setUp() {
+        standIn.server().setDispatcher(dispatcher);
+        apiService = standIn.apiService();
+    }
+
+    @Test
+    public void negotiatesProtobuf() throws Exception {
+        assertAllPathsDecode();
+        assertTrue(standIn.server().takeRequest().getHeader("Accept").startsWith(UserProtobufFormat.MEDIA_TYPE));
+    }
+
+    @Test
+    public void fallsBackToJson() throws Exception {
+        dispatcher.setProtobufSupported(false);
+        assertAllPathsDecode();
+    }
+
+    @Test
+    public void negativeIdsAreSignExtended() throws Exception {
+        List<User> users = Collections.singletonList(new User(-1, null, null, null));
+        Buffer buffer = new Buffer();
+        UserProtobufFormat.write(users, buffer);
+
+        // Tag and length of the UserList entry, then the id's tag and a 10-byte varint
+        assertEquals(2 + 1 + 10, buffer.size());
+        assertEquals(users, new UserProtobufFormat(1).parse(buffer, null));
+    }
+
+    @Test
+    public void streamsAnyRegisteredFormat() throws Exception {
+        List<User> expected = TestData.users(USERS);
+        Buffer records = new Buffer();
+        UserRecordFormat.write(expected, records);
+        standIn.server().setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return new MockResponse().setHeader("Content-Type", UserRecordFormat.MEDIA_TYPE)
+                        .setBody(records.clone());
+            }
+        });
+        List<WireFormat> formats = new ArrayList<>(NetworkModule.createWireFormats());
+        formats.add(new UserRecordFormat());
+
+        assertEquals(expected, data(standIn.apiService(formats).getUsersStreamingAsync(null)
+                .get(30, TimeUnit.SECONDS)));
+        // Without the format the body is read as JSON
+        assertTrue(apiService.getUsersStreamingAsync(null).get(30, TimeUnit.SECONDS) instanceof Result.Error);
+    }
+
+    private void assertAllPathsDecode() throws Exception {
+        List<User> expected = TestData.users(USERS);
+        assertEquals(expected, data(apiService.getUsersPageAsync(1, USERS).get(30, TimeUnit.SECONDS)));
+        List<Integer> progress = new ArrayList<>();
+        assertEquals(expected, data(apiService.getUsersStreamingAsync(users -> progress.add(users.size()))
+                .get(30, TimeUnit.SECONDS)));
+        assertEquals(20, progress.get(0).intValue());
+    }
+
+    private static List<User> data(Result<List<User>> result) {
+        assertTrue(String.valueOf(result), result instanceof Result.Success);
+        return ((Result.Success<List<User>>) result).getData();
+    }
+
+    /**
+     * A binary format other than protobuf: per user, the id and three length-prefixed strings
+     */
+    private static final class UserRecordFormat implements WireFormat {
+        static final String MEDIA_TYPE = "application/x-user-records";
+
+        @NonNull
+        @Override
+        public String getMediaType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override
+        public boolean canRead(@NonNull Type type) {
+            return true;
+        }
+
+        @NonNull
+        @Override
+        public Object read(@NonNull ResponseBody body) throws IOException {
+            BufferedSource source = body.source();
+            List<User> users = new ArrayList<>();
+            while (!source.exhausted()) {
+                users.add(new User(source.readInt(), readString(source), readString(source), readString(source)));
+            }
+            return users;
+        }
+
+        static void write(List<User> users, Buffer sink) {
+            for (User user : users) {
+                sink.writeInt(user.getId());
+                for (String value : Arrays.asList(user.getName(), user.getUsername(), user.getEmail())) {
+                    sink.writeInt((int) Utf8.size(value));
+                    sink.writeUtf8(value);
+                }
+            }
+        }
+
+        private static String readString(BufferedSource source) throws IOException {
+            return source.readUtf8(source.readInt());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageLoader;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.AvatarServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.ImageDelivery;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A scroll through a list that binds and recycles rows as UserAdapter does
+ *
+ * Reports how many rows show their avatar immediately, and the median time until the rest
+ * do, with and without prefetching the rows ahead.
+ */
+public class AvatarScrollBenchmark {
+    /** 64dp on a 2x screen */
+    private static final int AVATAR_PX = 128;
+    private static final int ROWS = 100;
+    private static final int VISIBLE_ROWS = 8;
+    private static final int PREFETCH_ROWS = 6;
+    private static final long FRAME_MILLIS = 60;
+
+    @Rule
+    public AvatarServerRule avatars = new AvatarServerRule();
+
+    @Test
+    public void scrollWithAndWithoutPrefetch() throws Exception {
+        // Warms up decoding and connections so neither run pays for it
+        scroll(true);
+        ScrollResult withoutPrefetch = scroll(false);
+        ScrollResult withPrefetch = scroll(true);
+        System.out.printf(Locale.US,
+                "avatar scroll: %d rows, %d ms/row, %d ms server: without prefetch %d%% immediate, "
+                        + "p50 %.0f ms to avatar, %d fetched; with prefetch %d%% immediate, p50 %.0f ms, %d fetched%n",
+                ROWS, FRAME_MILLIS, avatars.getLatencyMillis(),
+                withoutPrefetch.immediatePercent, withoutPrefetch.p50Millis, withoutPrefetch.fetched,
+                withPrefetch.immediatePercent, withPrefetch.p50Millis, withPrefetch.fetched);
+        assertTrue("Prefetch did not show more avatars immediately",
+                withPrefetch.immediatePercent > withoutPrefetch.immediatePercent);
+    }
+
+    /**
+     * Scrolls one row per frame, binding the row entering at the bottom and recycling the one
+     * leaving at the top
+     */
+    private ScrollResult scroll(boolean prefetch) throws Exception {
+        avatars.resetRequestCount();
+        ImageLoader<BufferedImage> loader = avatars.loader(avatars.newFolder(), new MetricsRegistry());
+        Map<Integer, ImageLoader<BufferedImage>.LoadRequest> bound = new HashMap<>();
+        Map<Integer, Long> boundAt = new ConcurrentHashMap<>();
+        List<Long> timesToAvatar = Collections.synchronizedList(new ArrayList<>());
+        int immediate = 0;
+
+        for (int row = 0; row < ROWS; row++) {
+            boundAt.put(row, System.nanoTime());
+            int boundRow = row;
+            ImageDelivery delivery = new ImageDelivery() {
+                @Override
+                public void onLoaded(@NonNull BufferedImage image) {
+                    super.onLoaded(image);
+                    timesToAvatar.add(System.nanoTime() - boundAt.get(boundRow));
+                }
+            };
+            bound.put(row, loader.load(avatars.url(row), AVATAR_PX, delivery));
+            if (delivery.isDelivered()) {
+                immediate++;
+            }
+            ImageLoader<BufferedImage>.LoadRequest recycled = bound.remove(row - VISIBLE_ROWS);
+            if (recycled != null) {
+                recycled.cancel();
+            }
+            if (prefetch) {
+                for (int ahead = row + 1; ahead <= row + PREFETCH_ROWS && ahead < ROWS; ahead++) {
+                    loader.prefetch(avatars.url(ahead), AVATAR_PX);
+                }
+            }
+            Thread.sleep(FRAME_MILLIS);
+        }
+        for (ImageLoader<BufferedImage>.LoadRequest request : bound.values()) {
+            request.cancel();
+        }
+
+        List<Long> sorted = new ArrayList<>(timesToAvatar);
+        Collections.sort(sorted);
+        return new ScrollResult(immediate * 100 / ROWS,
+                sorted.isEmpty() ? Double.NaN : sorted.get(sorted.size() / 2) / 1e6, avatars.getRequestCount());
+    }
+
+    private static final class ScrollResult {
+        final int immediatePercent;
+        final double p50Millis;
+        final int fetched;
+
+        ScrollResult(int immediatePercent, double p50Millis, int fetched) {
+            this.immediatePercent = immediatePercent;
+            this.p50Millis = p50Millis;
+            this.fetched = fetched;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Minimal JVM microbenchmark harness for the local unit test source set
+ *
+ * Each benchmark is warmed up, then timed over a fixed number of iterations; the median
+ * time per operation and the bytes allocated per operation are reported. Results are
+ * appended to {@code build/benchmarks/results.csv} and compared against the checked-in
+ * {@code benchmarks/baseline.csv}, failing when the median regresses beyond the tolerance
+ * or when the benchmark has no baseline, so new or renamed benchmarks cannot skip the gate.
+ *
+ * Run with {@code ./gradlew testDebugUnitTest -Pbenchmark}; add {@code -PrecordBaseline}
+ * to overwrite the baseline with the current results instead of checking against it.
+ */
+final class Microbenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 15;
+    private static final double DEFAULT_TOLERANCE = 0.25;
+
+    private static final File RESULTS_FILE = new File(
+            System.getProperty("benchmark.results", "build/benchmarks/results.csv"));
+    private static final File BASELINE_FILE = new File(
+            System.getProperty("benchmark.baseline", "benchmarks/baseline.csv"));
+    private static final boolean RECORD_BASELINE = Boolean.getBoolean("benchmark.recordBaseline");
+    private static final double TOLERANCE = Double.parseDouble(
+            System.getProperty("benchmark.tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+
+    /** Keeps results reachable so the JIT cannot eliminate the measured work */
+    static volatile Object blackhole;
+
+    private Microbenchmark() {}
+
+    /**
+     * Measures the operation, records the result and checks it against the baseline
+     */
+    static void run(String name, Supplier<?> operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            blackhole = operation.get();
+        }
+
+        long[] nanos = new long[MEASURED_ITERATIONS];
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            blackhole = operation.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long bytesPerOp = (allocatedBytes() - allocatedBefore) / MEASURED_ITERATIONS;
+
+        Arrays.sort(nanos);
+        long medianNanos = nanos[MEASURED_ITERATIONS / 2];
+        System.out.printf(Locale.US, "%-50s median %,12d ns/op  p90 %,12d ns/op  %,12d B/op%n",
+                name, medianNanos, nanos[(int) (MEASURED_ITERATIONS * 0.9)], bytesPerOp);
+
+        record(name, medianNanos, bytesPerOp);
+        checkBaseline(name, medianNanos);
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static synchronized void record(String name, long medianNanos, long bytesPerOp) {
+        File target = RECORD_BASELINE ? BASELINE_FILE : RESULTS_FILE;
+        Map<String, String> rows = readCsv(target);
+        rows.put(name, medianNanos + "," + bytesPerOp);
+        target.getAbsoluteFile().getParentFile().mkdirs();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(target))) {
+            writer.println("benchmark,median_ns_per_op,bytes_per_op");
+            for (Map.Entry<String, String> row : rows.entrySet()) {
+                writer.println(row.getKey() + "," + row.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write benchmark results: " + e);
+        }
+    }
+
+    private static void checkBaseline(String name, long medianNanos) {
+        if (RECORD_BASELINE) {
+            return;
+        }
+        String baseline = readCsv(BASELINE_FILE).get(name);
+        if (baseline == null) {
+            fail("No baseline recorded for " + name + " in " + BASELINE_FILE
+                    + "; record one with ./gradlew testDebugUnitTest -Pbenchmark -PrecordBaseline");
+        }
+        long baselineNanos = Long.parseLong(baseline.split(",")[0]);
+        if (medianNanos > baselineNanos * (1 + TOLERANCE)) {
+            fail(String.format(Locale.US, "%s regressed: %,d ns/op vs baseline %,d ns/op",
+                    name, medianNanos, baselineNanos));
+        }
+    }
+
+    private static Map<String, String> readCsv(File file) {
+        Map<String, String> rows = new TreeMap<>();
+        if (!file.exists()) {
+            return rows;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma > 0) {
+                    rows.put(line.substring(0, comma), line.substring(comma + 1));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read " + file + ": " + e);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,33 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+
+/**
+ * Overhead of wrapping and unwrapping data in Result, measured per million operations
+ */
+public class ResultBenchmark {
+    private static final int OPERATIONS = 1_000_000;
+
+    @Test
+    public void wrapAndUnwrap() {
+        List<User> users = TestData.users(10);
+        Microbenchmark.run("result/wrap+unwrap/x" + OPERATIONS, () -> {
+            int total = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                Result<List<User>> result = (i & 7) == 0
+                        ? new Result.Error<>("failed")
+                        : new Result.Success<>(users);
+                if (result instanceof Result.Success) {
+                    total += ((Result.Success<List<User>>) result).getData().size();
+                }
+            }
+            return total;
+        });
+    }
+}
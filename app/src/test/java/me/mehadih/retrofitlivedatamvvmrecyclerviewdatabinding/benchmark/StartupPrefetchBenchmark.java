@@ -0,0 +1,127 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiRequestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.WireFormat;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di.NetworkModule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserViewModel;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cold-start-to-first-row with and without the startup prefetch
+ *
+ * Each run builds the network stack, repository and caches from scratch, as after a cold
+ * start with nothing cached. The "activity" then takes a fixed inflation time before its
+ * ViewModel observes; with prefetching the users fetch is started before inflation, as
+ * MyApplication does. The time until the first list reaches the ViewModel is reported.
+ */
+public class StartupPrefetchBenchmark {
+    private static final int RUNS = 10;
+    private static final int USERS = 1_000;
+    private static final long SERVER_LATENCY_MILLIS = 150;
+    private static final long INFLATION_MILLIS = 200;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void coldStartToFirstRow() throws Exception {
+        String payload = new Gson().toJson(TestData.users(USERS));
+        // Alternate so both variants see the same JIT state on average
+        List<Long> withPrefetch = new ArrayList<>();
+        List<Long> withoutPrefetch = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            withoutPrefetch.add(coldStart(payload, false));
+            withPrefetch.add(coldStart(payload, true));
+        }
+        Collections.sort(withPrefetch);
+        Collections.sort(withoutPrefetch);
+        long medianWith = withPrefetch.get(RUNS / 2);
+        long medianWithout = withoutPrefetch.get(RUNS / 2);
+
+        System.out.printf(Locale.US,
+                "cold start to first row: %d users, %d ms server, %d ms inflation: "
+                        + "without prefetch p50 %.1f ms, with prefetch p50 %.1f ms%n",
+                USERS, SERVER_LATENCY_MILLIS, INFLATION_MILLIS, medianWithout / 1e6, medianWith / 1e6);
+        assertTrue("Prefetch did not help", medianWith < medianWithout);
+    }
+
+    private long coldStart(String payload, boolean prefetch) throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody(payload)
+                .setHeadersDelay(SERVER_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        server.start();
+
+        long start = System.nanoTime();
+        InstrumentedExecutor executor = new InstrumentedExecutor("startup-io", 4, 64);
+        MetricsRegistry metrics = new MetricsRegistry();
+        OkHttpClient client = NetworkModule.createOkHttpClient(
+                tempFolder.newFolder(), HttpLoggingInterceptor.Level.NONE, metrics);
+        List<WireFormat> formats = NetworkModule.createWireFormats();
+        ApiRequestData api = NetworkModule.createRetrofit(client, server.url("/").toString(), formats)
+                .create(ApiRequestData.class);
+        SnapshotCache snapshotCache = new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics);
+        UserRepository repository = new UserRepository(new ApiService(api, executor, metrics, formats),
+                new UserCache(tempFolder.newFolder()), snapshotCache, executor, metrics);
+        if (prefetch) {
+            executor.execute(repository::prefetchUsers);
+        }
+
+        Thread.sleep(INFLATION_MILLIS);
+        Semaphore firstRow = new Semaphore(0);
+        UserViewModel viewModel = new UserViewModel(repository, snapshotCache, executor, metrics);
+        viewModel.getAllUsers().observeForever(users -> {
+            if (!users.isEmpty()) {
+                firstRow.release();
+            }
+        });
+        assertTrue("No rows", firstRow.tryAcquire(30, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+
+        // The ViewModel joined the prefetch instead of fetching again
+        assertEquals(1, server.getRequestCount());
+
+        awaitIdle(executor);
+        executor.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        server.shutdown();
+        return elapsed;
+    }
+
+    private static void awaitIdle(InstrumentedExecutor executor) throws InterruptedException {
+        while (executor.getActiveCount() > 0 || executor.getQueueDepth() > 0) {
+            Thread.sleep(1);
+        }
+    }
+}
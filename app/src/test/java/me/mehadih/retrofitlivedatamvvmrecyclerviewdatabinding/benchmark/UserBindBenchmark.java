@@ -0,0 +1,57 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserItem;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+/**
+ * Per-bind cost of preparing a row's text, formatted on every bind versus read from a
+ * precomputed UserItem, plus the one-off cost of building the items when a list arrives
+ *
+ * Each operation binds every row once, so ns/op divided by the row count is the cost
+ * per bind. View and data binding work is not included; it needs a device.
+ */
+public class UserBindBenchmark {
+    private static final int ROWS = 10_000;
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+
+    @Test
+    public void bindRows() {
+        List<User> users = TestData.users(ROWS);
+        List<UserItem> items = UserItem.of(users);
+
+        Microbenchmark.run("bind/format-on-bind/rows=" + ROWS, () -> {
+            int length = 0;
+            for (User user : users) {
+                String username = user.getUsername();
+                String email = user.getEmail();
+                length += user.getDisplayName().length();
+                length += (username != null && !username.isEmpty() ? "@" + username : "").length();
+                length += (email != null ? email : "").length();
+            }
+            return length;
+        });
+
+        Microbenchmark.run("bind/precomputed/rows=" + ROWS, () -> {
+            int length = 0;
+            for (UserItem item : items) {
+                length += item.getDisplayName().length();
+                length += item.getUsername().length();
+                length += item.getEmail().length();
+            }
+            return length;
+        });
+    }
+
+    @Test
+    public void buildItems() {
+        for (int size : SIZES) {
+            List<User> users = TestData.users(size);
+            Microbenchmark.run("bind/build-items/users=" + size, () -> UserItem.of(users));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.VersionedUserDispatcher;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserViewModel;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Refresh latency and response bytes of delta and full-list refreshes
+ *
+ * Between refreshes the stand-in server edits, deletes and inserts a few of its 10,000
+ * users; each refresh is timed until the ViewModel shows exactly the server's list.
+ */
+public class UserDeltaSyncBenchmark {
+    private static final int USERS = 10_000;
+    private static final int REFRESHES = 50;
+    private static final int CHANGES_PER_REFRESH = 10;
+    private static final long SETTLE_TIMEOUT_SECONDS = 35;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    @Test
+    public void deltaRefresh() throws Exception {
+        run(true);
+    }
+
+    @Test
+    public void fullRefresh() throws Exception {
+        run(false);
+    }
+
+    private void run(boolean deltaSync) throws Exception {
+        VersionedUserDispatcher backend = new VersionedUserDispatcher(TestData.users(USERS));
+        standIn.server().setDispatcher(backend);
+        MetricsRegistry metrics = standIn.metrics();
+        SnapshotCache snapshotCache = new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics);
+        UserRepository repository = new UserRepository(standIn.apiService(),
+                new UserCache(standIn.newFolder()), snapshotCache, standIn.executor(), metrics, deltaSync);
+
+        // Synced once the ViewModel shows exactly what the server holds
+        AtomicReference<List<User>> expected = new AtomicReference<>(backend.snapshot());
+        Semaphore synced = new Semaphore(0);
+        UserViewModel viewModel = new UserViewModel(repository, snapshotCache, standIn.executor(), metrics);
+        viewModel.getAllUsers().observeForever(users -> {
+            if (users != null && User.hasSameContent(expected.get(), users)) {
+                synced.release();
+            }
+        });
+        assertTrue("Initial load timed out", synced.tryAcquire(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        long bytesBefore = backend.getBytesServed();
+        List<Long> latencies = new ArrayList<>(REFRESHES);
+        for (int i = 0; i < REFRESHES; i++) {
+            backend.applyRandomChanges(CHANGES_PER_REFRESH);
+            expected.set(backend.snapshot());
+            synced.drainPermits();
+
+            long start = System.nanoTime();
+            viewModel.refreshUsers();
+            assertTrue("List did not match the server after refresh " + i,
+                    synced.tryAcquire(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            latencies.add(System.nanoTime() - start);
+            standIn.awaitIdle();
+        }
+
+        Collections.sort(latencies);
+        System.out.printf(Locale.US,
+                "%s sync: %d users, %d changes per refresh, p50 %.1f ms, p95 %.1f ms, %,d bytes per refresh%n",
+                deltaSync ? "delta" : "full", USERS, CHANGES_PER_REFRESH,
+                latencies.get(REFRESHES / 2) / 1_000_000.0,
+                latencies.get((int) (REFRESHES * 0.95)) / 1_000_000.0,
+                (backend.getBytesServed() - bytesBefore) / REFRESHES);
+    }
+}
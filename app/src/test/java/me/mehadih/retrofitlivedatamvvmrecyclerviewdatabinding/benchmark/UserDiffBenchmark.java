@@ -0,0 +1,32 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.adapter.UserDiffCallback;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+/**
+ * Cost of DiffUtil with UserDiffCallback, as run for every list refresh in UserAdapter
+ */
+public class UserDiffBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final double[] CHANGE_RATIOS = {0.0, 0.01, 0.10};
+
+    @Test
+    public void diffUserLists() {
+        for (int size : SIZES) {
+            List<User> oldUsers = TestData.users(size);
+            for (double changeRatio : CHANGE_RATIOS) {
+                List<User> newUsers = TestData.mutate(oldUsers, changeRatio, size);
+                Microbenchmark.run(
+                        "diff/users=" + size + "/changed=" + (int) (changeRatio * 100) + "%",
+                        () -> DiffUtil.calculateDiff(new UserDiffCallback(oldUsers, newUsers)));
+            }
+        }
+    }
+}
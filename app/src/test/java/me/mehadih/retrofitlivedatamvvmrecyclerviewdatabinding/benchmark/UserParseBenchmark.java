@@ -0,0 +1,71 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.UserProtobufFormat;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.UserStreamParser;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import okio.Buffer;
+
+/**
+ * Time and allocations to turn a users payload into a List of User
+ * The protobuf case also prints how its payload size compares with JSON.
+ */
+public class UserParseBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final Type USER_LIST_TYPE = new TypeToken<List<User>>() {}.getType();
+
+    @Test
+    public void gsonWholeBody() {
+        Gson gson = new Gson();
+        for (int size : SIZES) {
+            String json = TestData.usersJson(size);
+            Microbenchmark.run("parse/gson/users=" + size,
+                    () -> gson.<List<User>>fromJson(new StringReader(json), USER_LIST_TYPE));
+        }
+    }
+
+    @Test
+    public void streamParser() {
+        UserStreamParser parser = new UserStreamParser(new Gson(), 20);
+        for (int size : SIZES) {
+            String json = TestData.usersJson(size);
+            Microbenchmark.run("parse/stream/users=" + size, () -> {
+                try {
+                    return parser.parse(new StringReader(json), null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void protobuf() {
+        UserProtobufFormat format = new UserProtobufFormat(20);
+        for (int size : SIZES) {
+            byte[] bytes = TestData.usersProtobuf(size);
+            System.out.printf(Locale.US, "users=%d: json %,d bytes, protobuf %,d bytes%n",
+                    size, TestData.usersJson(size).getBytes(StandardCharsets.UTF_8).length, bytes.length);
+            Microbenchmark.run("parse/protobuf/users=" + size, () -> {
+                try {
+                    return format.parse(new Buffer().write(bytes), null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
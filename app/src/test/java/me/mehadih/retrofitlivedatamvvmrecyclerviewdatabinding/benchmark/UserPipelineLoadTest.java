@@ -0,0 +1,186 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserViewModel;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * End-to-end load harness for ApiService -> UserRepository -> UserViewModel
+ *
+ * The real network stack from NetworkModule is pointed at a local MockWebServer that
+ * serves configurable payload sizes, latencies and error rates. For each refreshUsers()
+ * call the time until the ViewModel settles (isLoading emits false) is recorded, and
+ * p50/p95/p99 latency, thread counts and allocated bytes are reported, followed by the
+ * per-phase histograms collected in MetricsRegistry.
+ */
+public class UserPipelineLoadTest {
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 200);
+    private static final long SETTLE_TIMEOUT_SECONDS = 35;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    @Test
+    public void smallPayloadFastServer() throws Exception {
+        Report report = run(new Scenario(100, 0, 0.0));
+        assertEquals(0, report.timeouts);
+    }
+
+    @Test
+    public void largePayloadSlowServer() throws Exception {
+        Report report = run(new Scenario(10_000, 50, 0.0));
+        assertEquals(0, report.timeouts);
+    }
+
+    @Test
+    public void flakyServer() throws Exception {
+        Report report = run(new Scenario(1_000, 20, 0.2));
+        assertEquals(0, report.timeouts);
+    }
+
+    private Report run(Scenario scenario) throws Exception {
+        // Alternate between two payloads so every successful refresh changes the list
+        Gson gson = new Gson();
+        List<User> users = TestData.users(scenario.userCount);
+        String[] payloads = {gson.toJson(users), gson.toJson(TestData.mutate(users, 0.01, 1))};
+        AtomicInteger served = new AtomicInteger();
+        Random random = new Random(42);
+
+        standIn.server().setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                MockResponse response = random.nextDouble() < scenario.errorRate
+                        ? new MockResponse().setResponseCode(500).setBody("Injected failure")
+                        : new MockResponse().setBody(payloads[served.getAndIncrement() % 2]);
+                return response.setHeadersDelay(scenario.latencyMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        long allocatedBefore = allocatedBytes(threads);
+
+        InstrumentedExecutor executor = standIn.executor();
+        MetricsRegistry metrics = standIn.metrics();
+        ApiService apiService = standIn.apiService();
+        SnapshotCache snapshotCache = new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics);
+        UserRepository repository = new UserRepository(
+                apiService, new UserCache(standIn.newFolder()), snapshotCache, executor, metrics);
+
+        Semaphore settled = new Semaphore(0);
+        AtomicInteger listEmissions = new AtomicInteger();
+        UserViewModel viewModel = new UserViewModel(repository, snapshotCache, executor, metrics);
+        viewModel.getAllUsers().observeForever(list -> listEmissions.incrementAndGet());
+        viewModel.isLoading().observeForever(loading -> {
+            if (Boolean.FALSE.equals(loading)) {
+                settled.release();
+            }
+        });
+
+        // Let the initial load finish before measuring refreshes
+        settled.tryAcquire(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        standIn.awaitIdle();
+
+        Report report = new Report();
+        List<Long> latencies = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            settled.drainPermits();
+            long start = System.nanoTime();
+            viewModel.refreshUsers();
+            if (settled.tryAcquire(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                latencies.add(System.nanoTime() - start);
+            } else {
+                report.timeouts++;
+            }
+            standIn.awaitIdle();
+        }
+
+        long allocated = allocatedBytes(threads) - allocatedBefore;
+        Collections.sort(latencies);
+        System.out.printf(Locale.US,
+                "%s: %d refreshes, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, timeouts %d, list emissions %d, "
+                        + "HTTP calls %d (coalesced %d), threads %d -> peak %d, allocated %,d KB%n  %s%n",
+                scenario, REQUESTS, millis(latencies, 0.50), millis(latencies, 0.95), millis(latencies, 0.99),
+                report.timeouts, listEmissions.get(), standIn.server().getRequestCount(), apiService.getCoalescedCallCount(),
+                threadsBefore, threads.getPeakThreadCount(), allocated / 1024, executor);
+        System.out.print(metrics.dump());
+        return report;
+    }
+
+    private static double millis(List<Long> sortedNanos, double quantile) {
+        if (sortedNanos.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static long allocatedBytes(java.lang.management.ThreadMXBean threads) {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    private static final class Scenario {
+        final int userCount;
+        final long latencyMillis;
+        final double errorRate;
+
+        Scenario(int userCount, long latencyMillis, double errorRate) {
+            this.userCount = userCount;
+            this.latencyMillis = latencyMillis;
+            this.errorRate = errorRate;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "users=%d/latency=%dms/errors=%.0f%%",
+                    userCount, latencyMillis, errorRate * 100);
+        }
+    }
+
+    private static final class Report {
+        int timeouts;
+    }
+}
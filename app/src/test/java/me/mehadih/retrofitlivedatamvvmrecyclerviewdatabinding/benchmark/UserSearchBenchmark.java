@@ -0,0 +1,37 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.search.UserSearchIndex;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+/**
+ * Cost of building the search index when a list arrives and of answering a query,
+ * for narrow and broad single-term queries and a two-term query
+ */
+public class UserSearchBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final String[] QUERIES = {"user12345", "user99", "user1", "name 42"};
+
+    @Test
+    public void buildIndex() {
+        for (int size : SIZES) {
+            List<User> users = TestData.users(size);
+            Microbenchmark.run("search/build/users=" + size, () -> UserSearchIndex.build(users));
+        }
+    }
+
+    @Test
+    public void queryIndex() {
+        for (int size : SIZES) {
+            UserSearchIndex index = UserSearchIndex.build(TestData.users(size));
+            for (String query : QUERIES) {
+                Microbenchmark.run("search/query/users=" + size + "/q=" + query.replace(' ', '+'),
+                        () -> index.search(query));
+            }
+        }
+    }
+}
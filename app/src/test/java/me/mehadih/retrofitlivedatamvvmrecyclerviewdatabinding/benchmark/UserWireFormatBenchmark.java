@@ -0,0 +1,72 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.UserFormatDispatcher;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bytes served and end-to-end fetch time of the protobuf and JSON user list encodings
+ */
+public class UserWireFormatBenchmark {
+    private static final int USERS = 10_000;
+    private static final int FETCHES = 20;
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final UserFormatDispatcher dispatcher = new UserFormatDispatcher(USERS);
+    private ApiService apiService;
+
+    @Before
+    public void setUp() {
+        standIn.server().setDispatcher(dispatcher);
+        apiService = standIn.apiService();
+    }
+
+    @Test
+    public void compareEncodings() throws Exception {
+        long protobufNanos = timeFetches();
+        long protobufBytes = dispatcher.takeBytesServed();
+        dispatcher.setProtobufSupported(false);
+        long jsonNanos = timeFetches();
+        long jsonBytes = dispatcher.takeBytesServed();
+
+        System.out.printf(Locale.US,
+                "wire format, %d users: json %,d bytes %.1f ms per fetch, protobuf %,d bytes %.1f ms per fetch "
+                        + "(%.1fx smaller, %.1fx faster)%n",
+                USERS, jsonBytes / FETCHES, jsonNanos / 1e6 / FETCHES, protobufBytes / FETCHES,
+                protobufNanos / 1e6 / FETCHES, (double) jsonBytes / protobufBytes, (double) jsonNanos / protobufNanos);
+        assertTrue(protobufBytes < jsonBytes);
+    }
+
+    /**
+     * Fetches the list FETCHES times after a warm-up and returns the total time
+     */
+    private long timeFetches() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            apiService.getUsersPageAsync(i, USERS).get(30, TimeUnit.SECONDS);
+        }
+        dispatcher.takeBytesServed();
+        long start = System.nanoTime();
+        for (int i = 0; i < FETCHES; i++) {
+            // Distinct pages so neither single-flight nor the HTTP cache answers
+            Result<List<User>> result = apiService.getUsersPageAsync(100 + i, USERS).get(30, TimeUnit.SECONDS);
+            assertTrue(String.valueOf(result), result instanceof Result.Success);
+            assertEquals(USERS, ((Result.Success<List<User>>) result).getData().size());
+        }
+        return System.nanoTime() - start;
+    }
+}
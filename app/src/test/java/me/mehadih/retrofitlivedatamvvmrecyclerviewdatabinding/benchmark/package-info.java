@@ -0,0 +1,7 @@
+/**
+ * Microbenchmarks, load tests and other timing measurements
+ *
+ * Excluded from the regular unit tests; run them with ./gradlew testDebugUnitTest -Pbenchmark.
+ * Behavior tests live next to the code they test instead.
+ */
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.benchmark;
@@ -0,0 +1,174 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.mockwebserver.MockResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SnapshotCache eviction and the repository's recovery from memory pressure
+ *
+ * The cache must evict least recently used entries by size, keep pinned entries until it is
+ * emptied, shrink for each trim level and count hits, misses and evictions. After a
+ * background trim the repository must hold no list while unobserved, and the next load
+ * must show the disk snapshot before the network answers.
+ */
+public class SnapshotCacheTest {
+    private static final int USERS = 10_000;
+    private static final long SERVER_LATENCY_MILLIS = 500;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final SnapshotCache.Key<String> first = new SnapshotCache.Key<>("first");
+    private final SnapshotCache.Key<String> second = new SnapshotCache.Key<>("second");
+    private final SnapshotCache.Key<String> third = new SnapshotCache.Key<>("third");
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        SnapshotCache cache = new SnapshotCache(1_000, metrics);
+        List<SnapshotCache.Key<?>> evicted = new ArrayList<>();
+        cache.addOnEvictedListener(evicted::add);
+
+        cache.put(first, "a", 400);
+        cache.put(second, "b", 400);
+        assertEquals("a", cache.get(first));
+        cache.put(third, "c", 400);
+
+        assertNull(cache.get(second));
+        assertEquals("a", cache.get(first));
+        assertEquals("c", cache.get(third));
+        assertEquals(List.of(second), evicted);
+        assertEquals(800, cache.getSizeBytes());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("snapshot_cache.eviction"));
+
+        // Too large to cache at all, and the stale value is not served either
+        cache.put(first, "huge", 2_000);
+        assertNull(cache.get(first));
+        assertEquals(400, cache.getSizeBytes());
+    }
+
+    @Test
+    public void pinnedEntriesAreOnlyEvictedWithEverything() {
+        SnapshotCache cache = new SnapshotCache(1_000, new MetricsRegistry());
+        SnapshotCache.Key<String> pinned = new SnapshotCache.Key<>("pinned", true);
+        cache.put(first, "a", 400);
+        cache.put(second, "b", 400);
+
+        // Larger than the budget, and cached anyway at the expense of the derived entries
+        cache.put(pinned, "users", 1_500);
+        assertEquals("users", cache.get(pinned));
+        assertNull(cache.get(first));
+        assertNull(cache.get(second));
+        cache.put(first, "a", 400);
+        assertNull(cache.get(first));
+        assertEquals(1_500, cache.getSizeBytes());
+
+        cache.put(pinned, "fewer users", 600);
+        cache.put(first, "a", 400);
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals("fewer users", cache.get(pinned));
+        assertNull(cache.get(first));
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertNull(cache.get(pinned));
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void shrinksForTrimLevels() {
+        SnapshotCache cache = new SnapshotCache(1_000, new MetricsRegistry());
+        cache.put(first, "a", 300);
+        cache.put(second, "b", 300);
+        cache.put(third, "c", 300);
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(900, cache.getSizeBytes());
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(300, cache.getSizeBytes());
+        assertEquals("c", cache.get(third));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, cache.getSizeBytes());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test
+    public void repositoryReloadsFromDiskAfterBackgroundTrim() throws Exception {
+        List<User> users = TestData.users(USERS);
+        String payload = new Gson().toJson(users);
+        for (int i = 0; i < 2; i++) {
+            standIn.server().enqueue(new MockResponse().setBody(payload)
+                    .setHeadersDelay(SERVER_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        MetricsRegistry metrics = standIn.metrics();
+        UserCache userCache = new UserCache(standIn.newFolder());
+        SnapshotCache snapshotCache = new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics);
+        UserRepository repository = new UserRepository(standIn.apiService(),
+                userCache, snapshotCache, standIn.executor(), metrics, false);
+
+        LiveData<Result<List<User>>> loaded = repository.getUsers();
+        awaitUsers(loaded, users);
+        assertEquals(User.estimateSizeBytes(users), snapshotCache.getSizeBytes());
+        while (userCache.read() == null) {
+            Thread.sleep(1);
+        }
+
+        snapshotCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, snapshotCache.getSizeBytes());
+        assertNull("Unobserved LiveData still holds the list", loaded.getValue());
+
+        long reloadNanos = awaitUsers(repository.getUsers(), users);
+        assertTrue("Reload waited for the network", reloadNanos < TimeUnit.MILLISECONDS.toNanos(SERVER_LATENCY_MILLIS));
+    }
+
+    /**
+     * Observes until a Success with the expected users arrives, returns how long that took
+     */
+    private static long awaitUsers(LiveData<Result<List<User>>> liveData, List<User> expected)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        Semaphore loaded = new Semaphore(0);
+        Observer<Result<List<User>>> observer = result -> {
+            if (result instanceof Result.Success
+                    && User.hasSameContent(expected, ((Result.Success<List<User>>) result).getData())) {
+                loaded.release();
+            }
+        };
+        liveData.observeForever(observer);
+        assertTrue("Users did not load", loaded.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        liveData.removeObserver(observer);
+        return elapsed;
+    }
+}
@@ -0,0 +1,175 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserChangeMerger;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Persisting the user list with UserCache, and journaling deltas onto it
+ *
+ * Writes must replace the snapshot atomically, so a failed write leaves the previous list
+ * readable, and markFresh() must move the saved time without touching the list.
+ */
+public class UserCacheTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File directory;
+    private UserCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = tempFolder.newFolder();
+        cache = new UserCache(directory);
+    }
+
+    @Test
+    public void writtenListIsReadBack() {
+        assertNull(cache.read());
+        List<User> users = TestData.users(100);
+
+        cache.write(users);
+
+        assertTrue(User.hasSameContent(users, cache.read()));
+        assertFalse("Temporary file left behind", tempFile().exists());
+    }
+
+    @Test
+    public void failedWriteKeepsThePreviousSnapshot() throws IOException {
+        List<User> users = TestData.users(10);
+        cache.write(users);
+        byte[] snapshot = Files.readAllBytes(snapshotFile().toPath());
+        // A directory in the temporary file's place makes the next write fail before the rename
+        assertTrue(tempFile().mkdir());
+
+        cache.write(TestData.users(20));
+
+        assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile().toPath()));
+        assertTrue(User.hasSameContent(users, cache.read()));
+    }
+
+    @Test
+    public void unreadableSnapshotIsDiscarded() throws IOException {
+        Files.write(snapshotFile().toPath(), "[{\"id\":1,".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(cache.read());
+        assertFalse(snapshotFile().exists());
+    }
+
+    @Test
+    public void markFreshMovesTheSavedTime() {
+        assertEquals(0, cache.getSavedAtMillis());
+        cache.markFresh();
+        assertEquals("Nothing cached to mark", 0, cache.getSavedAtMillis());
+
+        cache.write(TestData.users(10));
+        long dayAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+        assertTrue(snapshotFile().setLastModified(dayAgo));
+        assertEquals(dayAgo / 1000, cache.getSavedAtMillis() / 1000);
+
+        long before = System.currentTimeMillis();
+        cache.markFresh();
+        assertTrue("Saved time not updated", cache.getSavedAtMillis() >= before - 1000);
+        assertTrue(User.hasSameContent(TestData.users(10), cache.read()));
+    }
+
+    @Test
+    public void deltasAreAppendedWithoutRewritingTheSnapshot() throws IOException {
+        List<User> users = TestData.users(100);
+        cache.write(users);
+        byte[] snapshot = Files.readAllBytes(snapshotFile().toPath());
+
+        List<User> current = users;
+        for (int version = 2; version <= 4; version++) {
+            UserChanges changes = new UserChanges(version, false, Arrays.asList(
+                    new User(version, "Edited " + version, "user" + version, "user" + version + "@example.com"),
+                    new User(100 + version, "New " + version, "new" + version, "new" + version + "@example.com")),
+                    new int[] {10 + version});
+            current = UserChangeMerger.merge(current, changes);
+            cache.writeChanges(changes, current);
+        }
+
+        assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile().toPath()));
+        assertTrue(User.hasSameContent(current, cache.read()));
+    }
+
+    @Test
+    public void largeJournalIsCompactedIntoTheSnapshot() {
+        List<User> current = TestData.users(20);
+        cache.write(current);
+        for (int version = 2; version <= 20; version++) {
+            UserChanges changes = new UserChanges(version, false, TestData.users(20).subList(version - 1, version),
+                    new int[0]);
+            current = UserChangeMerger.merge(current, changes);
+            cache.writeChanges(changes, current);
+        }
+
+        assertTrue(journalFile().length() * 4 <= snapshotFile().length());
+        assertTrue(User.hasSameContent(current, cache.read()));
+    }
+
+    @Test
+    public void truncatedJournalEntryEndsTheReplay() throws IOException {
+        List<User> users = TestData.users(10);
+        cache.write(users);
+        UserChanges changes = new UserChanges(2, false, Arrays.asList(), new int[] {1});
+        List<User> afterDelete = UserChangeMerger.merge(users, changes);
+        cache.writeChanges(changes, afterDelete);
+        try (FileOutputStream out = new FileOutputStream(journalFile(), true)) {
+            out.write("{\"version\":3,\"deleted\":[".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertTrue(User.hasSameContent(afterDelete, cache.read()));
+    }
+
+    @Test
+    public void writeAndClearDropTheJournal() {
+        List<User> users = TestData.users(10);
+        cache.write(users);
+        UserChanges changes = new UserChanges(2, false, Arrays.asList(), new int[] {1});
+        cache.writeChanges(changes, UserChangeMerger.merge(users, changes));
+        assertTrue(journalFile().exists());
+
+        cache.write(users);
+        assertFalse(journalFile().exists());
+        assertTrue(User.hasSameContent(users, cache.read()));
+
+        cache.writeChanges(changes, UserChangeMerger.merge(users, changes));
+        cache.clear();
+        assertNull(cache.read());
+        assertFalse(journalFile().exists());
+    }
+
+    private File snapshotFile() {
+        return new File(directory, "users_cache.json");
+    }
+
+    private File tempFile() {
+        return new File(directory, "users_cache.json.tmp");
+    }
+
+    private File journalFile() {
+        return new File(directory, "users_cache.changes");
+    }
+}
@@ -0,0 +1,146 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.AvatarServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.ImageDelivery;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.SubsamplingDecoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The avatar pipeline against a stand-in server serving 512px PNG avatars
+ *
+ * Loads must be downsampled, served from memory and disk once fetched, shared between
+ * concurrent requests and stopped when cancelled. Downloads must bypass the API client's
+ * interceptors and metrics.
+ */
+public class ImageLoaderTest {
+    /** 64dp on a 2x screen */
+    private static final int AVATAR_PX = 128;
+
+    @Rule
+    public AvatarServerRule avatars = new AvatarServerRule();
+
+    @Test
+    public void decodesDownsampledAndCaches() throws Exception {
+        File diskDir = avatars.newFolder();
+        MetricsRegistry metrics = new MetricsRegistry();
+        ImageLoader<BufferedImage> loader = avatars.loader(diskDir, metrics);
+        String url = avatars.url(1);
+
+        // Two rows asking at once share one download
+        ImageDelivery first = new ImageDelivery();
+        ImageDelivery second = new ImageDelivery();
+        loader.load(url, AVATAR_PX, first);
+        loader.load(url, AVATAR_PX, second);
+        BufferedImage image = first.await();
+        assertNotNull(second.await());
+        assertEquals(AVATAR_PX, image.getWidth());
+        assertEquals(AVATAR_PX, image.getHeight());
+        assertEquals(1, avatars.getRequestCount());
+
+        // In memory: delivered before load() returns
+        ImageDelivery cached = new ImageDelivery();
+        loader.load(url, AVATAR_PX, cached);
+        assertTrue(cached.isDelivered());
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("image.memory_hit"));
+
+        // Another size is decoded again, but from disk
+        ImageDelivery larger = new ImageDelivery();
+        loader.load(url, 200, larger);
+        assertEquals(256, larger.await().getWidth());
+
+        // A new process starts with an empty memory cache but keeps the disk
+        MetricsRegistry restartedMetrics = new MetricsRegistry();
+        ImageDelivery afterRestart = new ImageDelivery();
+        avatars.loader(diskDir, restartedMetrics).load(url, AVATAR_PX, afterRestart);
+        assertNotNull(afterRestart.await());
+        assertEquals(1, avatars.getRequestCount());
+        assertEquals(Long.valueOf(1), restartedMetrics.getCounters().get("image.disk_hit"));
+    }
+
+    @Test
+    public void downloadsStayOutOfApiMetrics() throws Exception {
+        ImageLoader<BufferedImage> loader = avatars.loader(avatars.newFolder(), new MetricsRegistry());
+        ImageDelivery delivery = new ImageDelivery();
+        loader.load(avatars.url(1), AVATAR_PX, delivery);
+        assertNotNull(delivery.await());
+
+        assertTrue(avatars.apiMetrics().getCounters().isEmpty());
+        assertTrue(avatars.apiMetrics().getHistograms().isEmpty());
+    }
+
+    @Test
+    public void decoderFailureEndsTheJob() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        SubsamplingDecoder subsampling = new SubsamplingDecoder();
+        ImageLoader<BufferedImage> loader = avatars.loader(avatars.newFolder(), metrics, new ImageDecoder<BufferedImage>() {
+            @Override
+            public BufferedImage decode(@NonNull byte[] data, int targetPx) throws IOException {
+                if (failing.get()) {
+                    throw new IllegalStateException("Corrupt image");
+                }
+                return subsampling.decode(data, targetPx);
+            }
+
+            @Override
+            public long sizeBytes(@NonNull BufferedImage image) {
+                return subsampling.sizeBytes(image);
+            }
+        });
+
+        loader.load(avatars.url(1), AVATAR_PX, new ImageDelivery());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (metrics.getCounters().get("image.failed") == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("image.failed"));
+        assertEquals(0, loader.getPendingCount());
+
+        // The next load starts over instead of joining the failed job
+        failing.set(false);
+        ImageDelivery retried = new ImageDelivery();
+        loader.load(avatars.url(1), AVATAR_PX, retried);
+        assertNotNull(retried.await());
+    }
+
+    @Test
+    public void cancelledLoadsStopFetching() throws Exception {
+        avatars.setLatencyMillis(300);
+        MetricsRegistry metrics = new MetricsRegistry();
+        ImageLoader<BufferedImage> loader = avatars.loader(avatars.newFolder(), metrics);
+
+        ImageDelivery recycled = new ImageDelivery();
+        loader.load(avatars.url(1), AVATAR_PX, recycled).cancel();
+        // Cancelled while another row still waits: the fetch continues for that row
+        ImageDelivery cancelledShared = new ImageDelivery();
+        ImageDelivery kept = new ImageDelivery();
+        ImageLoader<BufferedImage>.LoadRequest shared = loader.load(avatars.url(2), AVATAR_PX, cancelledShared);
+        loader.load(avatars.url(2), AVATAR_PX, kept);
+        shared.cancel();
+
+        assertNotNull(kept.await());
+        Thread.sleep(2 * avatars.getLatencyMillis());
+        assertFalse(recycled.isDelivered());
+        assertFalse(cancelledShared.isDelivered());
+        assertEquals(0, loader.getPendingCount());
+        assertEquals(Long.valueOf(2), metrics.getCounters().get("image.cancelled"));
+        assertNull(loader.getCached(avatars.url(1), AVATAR_PX));
+    }
+}
@@ -0,0 +1,114 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bucketing and percentiles of LatencyHistogram on known inputs, and concurrent recording
+ */
+public class LatencyHistogramTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void bucketsAreContiguousAndExactBelowSixteenMicros() {
+        for (long micros = 0; micros < 16; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketFor(micros));
+            assertEquals(micros, LatencyHistogram.lowerBoundMicros((int) micros));
+        }
+        int lastBucket = LatencyHistogram.bucketFor(Long.MAX_VALUE);
+        for (int bucket = 1; bucket < lastBucket; bucket++) {
+            long lowerBound = LatencyHistogram.lowerBoundMicros(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketFor(lowerBound));
+            assertEquals(bucket - 1, LatencyHistogram.bucketFor(lowerBound - 1));
+            // Eight buckets per power of two
+            long width = LatencyHistogram.lowerBoundMicros(bucket + 1) - lowerBound;
+            assertTrue("Bucket " + bucket + " is " + width + " us wide", width <= Math.max(1, lowerBound / 8));
+        }
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMeanMillis(), DELTA);
+        assertEquals(100.0, histogram.getMaxMillis(), DELTA);
+        // 50 ms lies in [49.152, 53.248) ms, 95 ms in [90.112, 98.304) ms
+        assertEquals(53.248, histogram.getPercentileMillis(0.50), DELTA);
+        assertEquals(98.304, histogram.getPercentileMillis(0.95), DELTA);
+        // 99 ms lies in [98.304, 106.496) ms, capped at the largest value
+        assertEquals(100.0, histogram.getPercentileMillis(0.99), DELTA);
+        // 1 ms lies in [0.96, 1.024) ms
+        assertEquals(1.024, histogram.getPercentileMillis(0), DELTA);
+    }
+
+    @Test
+    public void emptyAndNegativeDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMillis(0.99), DELTA);
+        assertEquals(0, histogram.getMeanMillis(), DELTA);
+
+        histogram.recordNanos(-5_000);
+        histogram.recordNanos(999);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getMaxMillis(), DELTA);
+        assertEquals(0, histogram.getPercentileMillis(1), DELTA);
+    }
+
+    @Test
+    public void overflowBucketReportsTheLargestValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long thirtyHours = TimeUnit.HOURS.toNanos(30);
+        long fortyHours = TimeUnit.HOURS.toNanos(40);
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.recordNanos(thirtyHours);
+        histogram.recordNanos(fortyHours);
+
+        assertEquals(LatencyHistogram.bucketFor(thirtyHours / 1_000), LatencyHistogram.bucketFor(fortyHours / 1_000));
+        assertEquals(TimeUnit.NANOSECONDS.toMillis(fortyHours), histogram.getPercentileMillis(0.99), DELTA);
+        assertEquals(1.024, histogram.getPercentileMillis(0.33), DELTA);
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int recordsPerThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= recordsPerThread; i++) {
+                    histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(i));
+                }
+            });
+            thread.start();
+            recorders.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : recorders) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertEquals((long) threads * recordsPerThread, histogram.getCount());
+        assertEquals((recordsPerThread + 1) / 2_000.0, histogram.getMeanMillis(), DELTA);
+        assertEquals(recordsPerThread / 1_000.0, histogram.getMaxMillis(), DELTA);
+        assertEquals(recordsPerThread / 1_000.0, histogram.getPercentileMillis(1), DELTA);
+    }
+}
@@ -0,0 +1,72 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Call phases and cache outcomes recorded by NetworkMetricsListener, through the app's OkHttpClient
+ */
+public class NetworkMetricsListenerTest {
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    @Test
+    public void recordsEveryPhaseOfACall() throws Exception {
+        standIn.server().enqueue(new MockResponse().setBody("hello"));
+
+        assertEquals("hello", fetch());
+
+        Map<String, LatencyHistogram> histograms = standIn.metrics().getHistograms();
+        for (String phase : new String[]{"http.dns", "http.connect", "http.ttfb", "http.body", "http.call"}) {
+            assertEquals(phase, 1, histograms.get(phase).getCount());
+        }
+        // Plain HTTP: no handshake
+        assertFalse(histograms.containsKey("http.tls"));
+        assertEquals(1, standIn.metrics().getCounters().get("http.cache_miss").longValue());
+    }
+
+    @Test
+    public void countsCacheHits() throws Exception {
+        standIn.server().enqueue(new MockResponse().setBody("hello").setHeader("Cache-Control", "max-age=60"));
+
+        fetch();
+        assertEquals("hello", fetch());
+
+        assertEquals(1, standIn.server().getRequestCount());
+        assertEquals(1, standIn.metrics().getCounters().get("http.cache_hit").longValue());
+        assertEquals(2, standIn.metrics().getHistograms().get("http.call").getCount());
+        // The hit never reached the network
+        assertEquals(1, standIn.metrics().getHistograms().get("http.ttfb").getCount());
+    }
+
+    @Test
+    public void countsFailedCalls() {
+        standIn.server().enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        assertThrows(IOException.class, this::fetch);
+
+        assertEquals(1, standIn.metrics().getCounters().get("http.call_failed").longValue());
+        assertNull(standIn.metrics().getHistograms().get("http.body"));
+    }
+
+    private String fetch() throws IOException {
+        Request request = new Request.Builder().url(standIn.server().url("/users")).build();
+        try (Response response = standIn.client().newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+}
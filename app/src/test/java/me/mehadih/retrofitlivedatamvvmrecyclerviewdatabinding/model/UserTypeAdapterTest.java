@@ -0,0 +1,71 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Reading and writing users with UserTypeAdapter, through Gson as the app does
+ */
+public class UserTypeAdapterTest {
+    private final Gson gson = new Gson();
+
+    @Test
+    public void writtenUsersReadBackEqual() {
+        List<User> users = Arrays.asList(
+                new User(1, "Leanne Graham", "Bret", "Sincere@april.biz"),
+                new User(2, null, "Antonette", null),
+                new User(-3, "", null, "Nathan@yesenia.net"));
+
+        String json = gson.toJson(users);
+
+        assertEquals(users, gson.fromJson(json, new TypeToken<List<User>>() {}.getType()));
+    }
+
+    @Test
+    public void nullStringsReadAsNull() {
+        assertEquals(new User(1, null, "Bret", "Sincere@april.biz"),
+                read("{\"id\":1,\"name\":null,\"username\":\"Bret\",\"email\":\"Sincere@april.biz\"}"));
+        assertEquals(new User(1, "Leanne Graham", null, "Sincere@april.biz"),
+                read("{\"id\":1,\"name\":\"Leanne Graham\",\"username\":null,\"email\":\"Sincere@april.biz\"}"));
+        assertEquals(new User(1, "Leanne Graham", "Bret", null),
+                read("{\"id\":1,\"name\":\"Leanne Graham\",\"username\":\"Bret\",\"email\":null}"));
+    }
+
+    @Test
+    public void unknownAndNestedFieldsAreSkipped() {
+        // Shape of a jsonplaceholder.typicode.com user
+        String json = "{\"id\":1,\"name\":\"Leanne Graham\",\"username\":\"Bret\","
+                + "\"address\":{\"street\":\"Kulas Light\",\"suite\":\"Apt. 556\",\"city\":\"Gwenborough\","
+                + "\"zipcode\":\"92998-3874\",\"geo\":{\"lat\":\"-37.3159\",\"lng\":\"81.1496\"}},"
+                + "\"email\":\"Sincere@april.biz\",\"phone\":\"1-770-736-8031 x56442\",\"website\":\"hildegard.org\","
+                + "\"company\":{\"name\":\"Romaguera-Crona\",\"catchPhrase\":\"Multi-layered client-server neural-net\","
+                + "\"bs\":\"harness real-time e-markets\"},\"tags\":[\"a\",{\"b\":[1,2]}]}";
+
+        assertEquals(new User(1, "Leanne Graham", "Bret", "Sincere@april.biz"), read(json));
+    }
+
+    @Test
+    public void missingFieldsKeepTheirDefaults() {
+        assertEquals(new User(0, "Leanne Graham", "Bret", "Sincere@april.biz"),
+                read("{\"name\":\"Leanne Graham\",\"username\":\"Bret\",\"email\":\"Sincere@april.biz\"}"));
+        assertEquals(new User(7, null, null, null), read("{\"id\":7}"));
+    }
+
+    @Test
+    public void nullUserReadsAsNull() {
+        assertNull(read("null"));
+        assertEquals("null", gson.toJson(null, User.class));
+    }
+
+    private User read(String json) {
+        return gson.fromJson(json, User.class);
+    }
+}
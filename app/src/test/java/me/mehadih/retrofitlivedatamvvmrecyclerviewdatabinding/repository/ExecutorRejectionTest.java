@@ -0,0 +1,102 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserViewModel;
+import okhttp3.mockwebserver.MockResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The repository and ViewModel with an IO executor that rejects every task
+ *
+ * Work they hand to a saturated executor must be dropped and counted, not thrown at the
+ * caller, and the users must still arrive from the network.
+ */
+public class ExecutorRejectionTest {
+    private static final int USERS = 100;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final InstrumentedExecutor saturated = new InstrumentedExecutor("saturated-io", 1, 1);
+
+    @Before
+    public void setUp() {
+        standIn.server().enqueue(new MockResponse().setBody(new Gson().toJson(TestData.users(USERS))));
+        // One task running and one queued: everything after that is rejected
+        for (int i = 0; i < 2; i++) {
+            saturated.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        saturated.shutdownNow();
+    }
+
+    @Test
+    public void usersArriveWhileTheExecutorIsFull() throws Exception {
+        MetricsRegistry metrics = standIn.metrics();
+        SnapshotCache snapshotCache = new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics);
+        UserRepository repository = new UserRepository(standIn.apiService(),
+                new UserCache(standIn.newFolder()), snapshotCache, saturated, metrics, false);
+        UserViewModel viewModel = new UserViewModel(repository, snapshotCache, saturated, metrics);
+
+        Semaphore loaded = new Semaphore(0);
+        viewModel.getAllUsers().observeForever(users -> {
+            if (users != null && users.size() == USERS) {
+                loaded.release();
+            }
+        });
+
+        assertTrue("Users did not load", loaded.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("repository.snapshot_rejected"));
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("viewmodel.search_rejected"));
+    }
+
+    @Test
+    public void syncCompletesWhileTheExecutorIsFull() throws Exception {
+        MetricsRegistry metrics = standIn.metrics();
+        UserRepository repository = new UserRepository(standIn.apiService(), new UserCache(standIn.newFolder()),
+                new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics), saturated, metrics, false);
+
+        Result<List<User>> result = repository.syncUsers().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(USERS, ((Result.Success<List<User>>) result).getData().size());
+    }
+}
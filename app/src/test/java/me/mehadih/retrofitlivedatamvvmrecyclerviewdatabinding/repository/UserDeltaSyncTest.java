@@ -0,0 +1,100 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.VersionedUserDispatcher;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.DeltaList;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel.UserViewModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Delta sync against a stand-in server that versions every change to its user collection
+ *
+ * Between refreshes the server edits, deletes and inserts a few users. Each refresh must
+ * leave the ViewModel, and the snapshot on disk, with exactly the server's list; in delta
+ * mode the new list must also be a DeltaList based on the previous one, so the adapter can
+ * skip the diff.
+ */
+public class UserDeltaSyncTest {
+    private static final int USERS = 1_000;
+    private static final int REFRESHES = 5;
+    private static final int CHANGES_PER_REFRESH = 10;
+    private static final long SETTLE_TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    @Test
+    public void deltaRefreshesPatchTheList() throws Exception {
+        run(true);
+    }
+
+    @Test
+    public void fullRefreshesReplaceTheList() throws Exception {
+        run(false);
+    }
+
+    private void run(boolean deltaSync) throws Exception {
+        VersionedUserDispatcher backend = new VersionedUserDispatcher(TestData.users(USERS));
+        standIn.server().setDispatcher(backend);
+        MetricsRegistry metrics = standIn.metrics();
+        UserCache userCache = new UserCache(standIn.newFolder());
+        SnapshotCache snapshotCache = new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics);
+        UserRepository repository = new UserRepository(standIn.apiService(),
+                userCache, snapshotCache, standIn.executor(), metrics, deltaSync);
+
+        AtomicReference<List<User>> expected = new AtomicReference<>(backend.snapshot());
+        Semaphore synced = new Semaphore(0);
+        UserViewModel viewModel = new UserViewModel(repository, snapshotCache, standIn.executor(), metrics);
+        viewModel.getAllUsers().observeForever(users -> {
+            if (users != null && User.hasSameContent(expected.get(), users)) {
+                synced.release();
+            }
+        });
+        assertTrue("Initial load timed out", synced.tryAcquire(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        standIn.awaitIdle();
+
+        for (int i = 0; i < REFRESHES; i++) {
+            backend.applyRandomChanges(CHANGES_PER_REFRESH);
+            expected.set(backend.snapshot());
+            List<User> previous = viewModel.getAllUsers().getValue();
+            synced.drainPermits();
+
+            viewModel.refreshUsers();
+            assertTrue("List did not match the server after refresh " + i,
+                    synced.tryAcquire(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            if (deltaSync) {
+                List<User> current = viewModel.getAllUsers().getValue();
+                assertTrue("Refresh " + i + " was not applied as a delta",
+                        current instanceof DeltaList && ((DeltaList<User>) current).isBasedOn(previous));
+            }
+            standIn.awaitIdle();
+        }
+
+        // A restart starts from the same list
+        List<User> persisted = userCache.read();
+        assertNotNull("Snapshot not written", persisted);
+        assertEquals(expected.get().size(), persisted.size());
+        assertTrue(User.hasSameContent(expected.get(), persisted));
+    }
+}
@@ -0,0 +1,210 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CircuitBreaker;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.RetryPolicy;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Page-by-page loading with UserPagingSource against a stand-in server
+ *
+ * The server pages its collection like the real API, with _page and _limit. Pages must be
+ * appended in order, a short or empty page must end the list, and extra requests while a
+ * page loads or after the end must be ignored. A failed page must keep the loaded ones.
+ */
+public class UserPagingSourceTest {
+    private static final int PAGE_SIZE = 10;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final BlockingQueue<Result<List<User>>> results = new LinkedBlockingQueue<>();
+    private final List<String> requestedPages = Collections.synchronizedList(new ArrayList<>());
+    private volatile int failingPage;
+    private volatile long pageDelayMillis;
+
+    @Test
+    public void pagesAreAppendedUntilAShortPage() throws Exception {
+        UserPagingSource source = pagingSource(25);
+
+        source.loadNextPage();
+        assertEquals(ids(1, 10), ids(awaitSuccess()));
+        source.loadNextPage();
+        assertEquals(ids(1, 20), ids(awaitSuccess()));
+        source.loadNextPage();
+        assertEquals(ids(1, 25), ids(awaitSuccess()));
+
+        // The short page was the last one
+        source.loadNextPage();
+        assertEquals(List.of("1", "2", "3"), requestedPages);
+        assertEquals(3, standIn.server().getRequestCount());
+    }
+
+    @Test
+    public void emptyPageEndsAnExactMultiple() throws Exception {
+        UserPagingSource source = pagingSource(20);
+
+        source.loadNextPage();
+        awaitSuccess();
+        source.loadNextPage();
+        awaitSuccess();
+        source.loadNextPage();
+        // The empty page re-publishes the users loaded so far
+        assertEquals(ids(1, 20), ids(awaitSuccess()));
+
+        source.loadNextPage();
+        assertEquals(3, standIn.server().getRequestCount());
+    }
+
+    @Test
+    public void callsWhileAPageLoadsAreIgnored() throws Exception {
+        pageDelayMillis = 200;
+        UserPagingSource source = pagingSource(50);
+
+        source.loadNextPage();
+        source.loadNextPage();
+        source.loadNextPage();
+        assertEquals(ids(1, 10), ids(awaitSuccess()));
+
+        assertEquals(List.of("1"), requestedPages);
+    }
+
+    @Test
+    public void failedPageKeepsLoadedUsersAndIsRetried() throws Exception {
+        failingPage = 2;
+        UserPagingSource source = pagingSource(30);
+
+        source.loadNextPage();
+        awaitSuccess();
+        awaitRequests(source, 2);
+
+        // Calls are ignored until the failed page finished loading, then retry it
+        failingPage = 0;
+        awaitRequests(source, 3);
+        assertEquals(ids(1, 20), ids(awaitSuccess()));
+        assertEquals(List.of("1", "2", "2"), requestedPages);
+        assertNull("Failure replaced the loaded users", results.poll());
+    }
+
+    @Test
+    public void refreshStartsAgainFromTheFirstPage() throws Exception {
+        UserPagingSource source = pagingSource(30);
+        source.loadNextPage();
+        awaitSuccess();
+        source.loadNextPage();
+        awaitSuccess();
+
+        source.refresh();
+
+        assertEquals(ids(1, 10), ids(awaitSuccess()));
+        assertEquals(List.of("1", "2", "1"), requestedPages);
+    }
+
+    @Test
+    public void emptyCollectionIsAnError() throws Exception {
+        UserPagingSource source = pagingSource(0);
+
+        source.loadNextPage();
+
+        Result<List<User>> result = awaitResult();
+        assertTrue(result instanceof Result.Error);
+        assertEquals("No users found", ((Result.Error<List<User>>) result).getMessage());
+    }
+
+    private UserPagingSource pagingSource(int userCount) {
+        List<User> users = TestData.users(userCount);
+        Gson gson = new Gson();
+        standIn.server().setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                int page = Integer.parseInt(request.getRequestUrl().queryParameter("_page"));
+                int limit = Integer.parseInt(request.getRequestUrl().queryParameter("_limit"));
+                requestedPages.add(String.valueOf(page));
+                if (page == failingPage) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                int from = Math.min((page - 1) * limit, users.size());
+                int to = Math.min(from + limit, users.size());
+                return new MockResponse().setBody(gson.toJson(users.subList(from, to)))
+                        .setHeadersDelay(pageDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        UserPagingSource source = new UserPagingSource(
+                standIn.apiService(RetryPolicy::none, CircuitBreaker::defaults), PAGE_SIZE);
+        source.getPages().observeForever(result -> {
+            if (!(result instanceof Result.Loading)) {
+                results.add(result);
+            }
+        });
+        return source;
+    }
+
+    private Result<List<User>> awaitResult() throws InterruptedException {
+        Result<List<User>> result = results.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue("No page loaded", result != null);
+        return result;
+    }
+
+    private List<User> awaitSuccess() throws InterruptedException {
+        Result<List<User>> result = awaitResult();
+        assertTrue(String.valueOf(result), result instanceof Result.Success);
+        return ((Result.Success<List<User>>) result).getData();
+    }
+
+    /**
+     * Asks for the next page until count pages were requested
+     */
+    private void awaitRequests(UserPagingSource source, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (requestedPages.size() < count) {
+            assertTrue("Page was not requested", System.nanoTime() < deadline);
+            source.loadNextPage();
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Integer> ids(int first, int last) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = first; id <= last; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        List<Integer> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
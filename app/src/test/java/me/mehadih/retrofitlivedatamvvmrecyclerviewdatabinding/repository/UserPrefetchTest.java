@@ -0,0 +1,122 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CircuitBreaker;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.RetryPolicy;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.mockwebserver.MockResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The startup prefetch handing its fetch over to the screen's first getUsers() call
+ *
+ * A prefetch that is still running, or succeeded, must be joined without a second request;
+ * one that failed, or was superseded by a refresh, must not be.
+ */
+public class UserPrefetchTest {
+    private static final int USERS = 100;
+    private static final long SERVER_LATENCY_MILLIS = 200;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final String payload = new Gson().toJson(TestData.users(USERS));
+
+    @Test
+    public void firstGetUsersJoinsARunningPrefetch() throws Exception {
+        standIn.server().enqueue(new MockResponse().setBody(payload)
+                .setHeadersDelay(SERVER_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        UserRepository repository = repository();
+
+        repository.prefetchUsers();
+        awaitUsers(repository.getUsers());
+
+        assertEquals(1, standIn.server().getRequestCount());
+    }
+
+    @Test
+    public void failedPrefetchIsNotJoined() throws Exception {
+        standIn.server().enqueue(new MockResponse().setResponseCode(500));
+        standIn.server().enqueue(new MockResponse().setBody(payload));
+        UserRepository repository = repository();
+
+        repository.prefetchUsers();
+        awaitFetches(1);
+        awaitUsers(repository.getUsers());
+
+        assertEquals(2, standIn.server().getRequestCount());
+    }
+
+    @Test
+    public void onlyTheFirstGetUsersJoinsThePrefetch() throws Exception {
+        standIn.server().enqueue(new MockResponse().setBody(payload));
+        standIn.server().enqueue(new MockResponse().setBody(payload));
+        UserRepository repository = repository();
+
+        repository.prefetchUsers();
+        awaitUsers(repository.getUsers());
+        awaitFetches(1);
+        repository.getUsers();
+        awaitFetches(2);
+
+        assertEquals(2, standIn.server().getRequestCount());
+    }
+
+    private UserRepository repository() throws Exception {
+        MetricsRegistry metrics = standIn.metrics();
+        return new UserRepository(standIn.apiService(RetryPolicy::none, CircuitBreaker::defaults),
+                new UserCache(standIn.newFolder()), new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics),
+                standIn.executor(), metrics, false);
+    }
+
+    /**
+     * Waits until count fetches have published their result
+     */
+    private void awaitFetches(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (fetchCount() < count) {
+            assertTrue("Fetch did not finish", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private long fetchCount() {
+        return standIn.metrics().getHistograms().containsKey("repository.fetch")
+                ? standIn.metrics().histogram("repository.fetch").getCount()
+                : 0;
+    }
+
+    private static void awaitUsers(LiveData<Result<List<User>>> liveData) throws InterruptedException {
+        Semaphore loaded = new Semaphore(0);
+        liveData.observeForever(result -> {
+            if (result instanceof Result.Success
+                    && ((Result.Success<List<User>>) result).getData().size() == USERS) {
+                loaded.release();
+            }
+        });
+        assertTrue("Users did not load", loaded.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+}
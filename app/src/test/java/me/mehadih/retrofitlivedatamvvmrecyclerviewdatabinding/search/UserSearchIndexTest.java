@@ -0,0 +1,120 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserChangeMerger;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Lookups in UserSearchIndex, and updating an index for a delta on its list
+ *
+ * Queries are matched by word prefix, across names, usernames and the words inside email
+ * addresses, with every term required and results in list order.
+ */
+public class UserSearchIndexTest {
+    private final List<User> users = Arrays.asList(
+            new User(1, "Ann Lee", "annlee", "ann.lee@example.com"),
+            new User(2, "Anna Smith", "asmith", "anna@smith.org"),
+            new User(3, "Ann\u00e9lie Berg", "aberg", "annelie@berg.se"),
+            new User(4, "Bob Annan", "bob", "bob@example.com"),
+            new User(5, "Anton Lee", "antonl", "anton@example.com"),
+            new User(6, "Zoe Lee", "zoe", "zoe@leeway.net"));
+    private final UserSearchIndex index = UserSearchIndex.build(users);
+
+    @Test
+    public void matchesEveryWordWithThePrefix() {
+        // The accented name sorts after every ASCII word starting with "ann"; the upper bound still includes it
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(index.search("ann")));
+        assertEquals(Arrays.asList(3), ids(index.search("ann\u00e9")));
+        assertEquals(Arrays.asList(5), ids(index.search("ant")));
+        assertEquals(Arrays.asList(), ids(index.search("ano")));
+    }
+
+    @Test
+    public void queriesAreCaseInsensitiveAndTrimmed() {
+        assertEquals(Arrays.asList(2), ids(index.search("  SMITH ")));
+    }
+
+    @Test
+    public void everyTermMustMatch() {
+        assertEquals(Arrays.asList(1), ids(index.search("ann lee")));
+        assertEquals(Arrays.asList(1), ids(index.search("lee ann")));
+        assertEquals(Arrays.asList(), ids(index.search("bob lee")));
+    }
+
+    @Test
+    public void narrowTermFiltersABroadOneInEitherOrder() {
+        // "a" matches nearly every word, "smi" one user; the result must not depend on term order
+        assertEquals(Arrays.asList(2), ids(index.search("a smi")));
+        assertEquals(Arrays.asList(2), ids(index.search("smi a")));
+    }
+
+    @Test
+    public void resultsKeepTheListOrder() {
+        assertEquals(Arrays.asList(1, 5, 6), ids(index.search("lee")));
+    }
+
+    @Test
+    public void emptyQueryReturnsAllUsers() {
+        assertSame(users, index.search(""));
+        assertSame(users, index.search(null));
+    }
+
+    @Test
+    public void emailsAndNamesAreSplitIntoWords() {
+        assertEquals(Arrays.asList(1), ids(index.search("ann.lee@example.com")));
+        assertEquals(Arrays.asList(1, 4, 5), ids(index.search("example")));
+        assertEquals(Arrays.asList(2), ids(index.search("org")));
+        assertEquals(Arrays.asList(6), ids(index.search("leeway")));
+        assertEquals(Arrays.asList(4), ids(index.search("annan")));
+        // Separators are not part of any word
+        assertEquals(Arrays.asList(), ids(index.search("@")));
+    }
+
+    @Test
+    public void updateMatchesARebuild() {
+        List<User> users = TestData.users(50);
+        UserSearchIndex index = UserSearchIndex.build(users);
+        List<User> merged = UserChangeMerger.merge(users, new UserChanges(2, false, Arrays.asList(
+                new User(7, "Renamed Person", "user7", "user7@example.com"),
+                new User(51, "User Name 51", "newcomer", "newcomer@example.org")),
+                new int[] {3, 40}));
+
+        UserSearchIndex updated = index.update(merged);
+        UserSearchIndex rebuilt = UserSearchIndex.build(merged);
+
+        for (String query : new String[] {"user", "user name 4", "renamed", "user7", "newcomer", "example.org",
+                "user3", "user40", "user4", "name 5"}) {
+            assertEquals(query, ids(rebuilt.search(query)), ids(updated.search(query)));
+        }
+        assertEquals(Arrays.asList(7), ids(updated.search("renamed")));
+        assertEquals(Arrays.asList(51), ids(updated.search("newcomer")));
+        assertEquals(Arrays.asList(), ids(updated.search("user3@")));
+        assertEquals(rebuilt.estimateSizeBytes(), updated.estimateSizeBytes());
+    }
+
+    @Test
+    public void updateForTheSameListReturnsTheIndex() {
+        List<User> users = TestData.users(5);
+        UserSearchIndex index = UserSearchIndex.build(users);
+
+        assertSame(index, index.update(users));
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        List<Integer> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,145 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.sync;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CircuitBreaker;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.RetryPolicy;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Background sync wake-ups against a stand-in server
+ *
+ * One wake-up must refresh the disk snapshot with a single request. A sync running alongside a
+ * foreground refresh must share its request, and a sync right after a refresh must not
+ * touch the network at all.
+ */
+public class BackgroundSyncTest {
+    private static final int USERS = 200;
+    private static final long LATENCY_MILLIS = 100;
+    private static final long MIN_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final Map<String, AtomicInteger> requestsByPath = new ConcurrentHashMap<>();
+    private volatile boolean usersFailing;
+    private MockWebServer server;
+    private MetricsRegistry metrics;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        String usersPayload = new Gson().toJson(TestData.users(USERS));
+        server = standIn.server();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                String path = request.getRequestUrl() != null ? request.getRequestUrl().encodedPath() : "";
+                requestsByPath.computeIfAbsent(path, ignored -> new AtomicInteger()).incrementAndGet();
+                Thread.sleep(LATENCY_MILLIS);
+                return usersFailing
+                        ? new MockResponse().setResponseCode(500)
+                        : new MockResponse().setBody(usersPayload);
+            }
+        });
+        metrics = standIn.metrics();
+        cacheDir = standIn.newFolder();
+    }
+
+    @Test
+    public void oneWakeUpRefreshesUsers() throws Exception {
+        BackgroundSync sync = new BackgroundSync(repository(apiService()), metrics, MIN_AGE_MILLIS);
+
+        assertTrue("Sync failed", sync.run().get(30, TimeUnit.SECONDS));
+
+        assertEquals(1, requests("/users"));
+        assertEquals(1, server.getRequestCount());
+        List<User> cached = new UserCache(cacheDir).read();
+        assertNotNull("Snapshot not written", cached);
+        assertEquals(USERS, cached.size());
+    }
+
+    @Test
+    public void joinsForegroundRefresh() throws Exception {
+        UserRepository repository = repository(apiService());
+        BackgroundSync sync = new BackgroundSync(repository, metrics, MIN_AGE_MILLIS);
+
+        repository.refreshUsers();
+        assertTrue("Sync failed", sync.run().get(30, TimeUnit.SECONDS));
+
+        assertEquals(1, requests("/users"));
+    }
+
+    @Test
+    public void skipsFreshSnapshot() throws Exception {
+        UserRepository repository = repository(apiService());
+        BackgroundSync sync = new BackgroundSync(repository, metrics, MIN_AGE_MILLIS);
+        assertTrue(repository.syncUsers().get(30, TimeUnit.SECONDS) instanceof Result.Success);
+        int before = server.getRequestCount();
+
+        assertTrue(sync.run().get(30, TimeUnit.SECONDS));
+
+        assertEquals(before, server.getRequestCount());
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("sync.skipped_fresh"));
+    }
+
+    @Test
+    public void failedSyncAsksForRetry() throws Exception {
+        usersFailing = true;
+        BackgroundSync sync = new BackgroundSync(repository(apiService()), metrics, MIN_AGE_MILLIS);
+
+        assertFalse(sync.run().get(30, TimeUnit.SECONDS));
+
+        assertEquals(1, requests("/users"));
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("sync.failed"));
+    }
+
+    private ApiService apiService() {
+        return standIn.apiService(RetryPolicy::none, CircuitBreaker::defaults);
+    }
+
+    private UserRepository repository(ApiService apiService) {
+        return new UserRepository(apiService, new UserCache(cacheDir),
+                new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, metrics), standIn.executor(), metrics);
+    }
+
+    private int requests(String path) {
+        AtomicInteger count = requestsByPath.get(path);
+        return count != null ? count.get() : 0;
+    }
+}
@@ -0,0 +1,174 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import androidx.annotation.NonNull;
+
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di.ImageModule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di.NetworkModule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageDecoder;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageDiskCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageLoader;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * A local MockWebServer serving the same PNG avatar for every URL, and ImageLoaders against it
+ *
+ * Loaders download with ImageModule's avatar client, built from NetworkModule's API
+ * client, decode with {@link SubsamplingDecoder} and deliver on the fetching thread, with
+ * ImageModule's thread count and disk budget. Everything started for a test is shut down
+ * after it and the temporary folder is deleted.
+ */
+public class AvatarServerRule extends ExternalResource {
+    private static final int SOURCE_PX = 512;
+    private static final long DEFAULT_LATENCY_MILLIS = 80;
+    private static final int IMAGE_THREADS = 3;
+    private static final int IMAGE_QUEUE_CAPACITY = 128;
+    private static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+    private static final long MEMORY_CACHE_BYTES = 8L * 1024 * 1024;
+
+    private final TemporaryFolder tempFolder = new TemporaryFolder();
+    private final byte[] png = png(SOURCE_PX);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<InstrumentedExecutor> executors = new ArrayList<>();
+    private volatile long latencyMillis = DEFAULT_LATENCY_MILLIS;
+    private MockWebServer server;
+    private MetricsRegistry apiMetrics;
+    private OkHttpClient apiClient;
+    private OkHttpClient client;
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return tempFolder.apply(super.apply(base, description), description);
+    }
+
+    @Override
+    protected void before() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                requests.incrementAndGet();
+                return new MockResponse()
+                        .setHeader("Content-Type", "image/png")
+                        .setBody(new Buffer().write(png))
+                        .setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        apiMetrics = new MetricsRegistry();
+        apiClient = NetworkModule.createOkHttpClient(tempFolder.newFolder(), HttpLoggingInterceptor.Level.NONE, apiMetrics);
+        client = ImageModule.createAvatarClient(apiClient);
+    }
+
+    @Override
+    protected void after() {
+        for (InstrumentedExecutor executor : executors) {
+            executor.shutdownNow();
+        }
+        apiClient.dispatcher().executorService().shutdown();
+        apiClient.connectionPool().evictAll();
+        try {
+            server.shutdown();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the metrics of the API client the avatar client was built from
+     */
+    public MetricsRegistry apiMetrics() {
+        return apiMetrics;
+    }
+
+    /**
+     * Delays the headers of every later response, 80 ms by default
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Returns the images requested from the server, since the start or the last reset
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public void resetRequestCount() {
+        requests.set(0);
+    }
+
+    public String url(int id) {
+        return server.url("/avatars/" + id + ".png").toString();
+    }
+
+    /**
+     * Returns a new empty folder, deleted after the test
+     */
+    public File newFolder() throws IOException {
+        return tempFolder.newFolder();
+    }
+
+    /**
+     * Returns a loader with an empty memory cache and its disk cache in diskDir
+     */
+    public ImageLoader<BufferedImage> loader(File diskDir, MetricsRegistry metrics) {
+        return loader(diskDir, metrics, new SubsamplingDecoder());
+    }
+
+    public ImageLoader<BufferedImage> loader(File diskDir, MetricsRegistry metrics, ImageDecoder<BufferedImage> decoder) {
+        InstrumentedExecutor executor = new InstrumentedExecutor("image-io", IMAGE_THREADS, IMAGE_QUEUE_CAPACITY);
+        executors.add(executor);
+        return new ImageLoader<>(client, new ImageDiskCache(diskDir, DISK_CACHE_BYTES), decoder,
+                MEMORY_CACHE_BYTES, executor, Runnable::run, metrics);
+    }
+
+    private static byte[] png(int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, size, size);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(size / 4, size / 4, size / 2, size / 2);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+}
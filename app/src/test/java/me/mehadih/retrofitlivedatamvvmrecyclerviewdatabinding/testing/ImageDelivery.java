@@ -0,0 +1,39 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import androidx.annotation.NonNull;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageLoader;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * An ImageLoader target tests can wait on, standing in for a row's ImageView
+ */
+public class ImageDelivery implements ImageLoader.Target<BufferedImage> {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final CountDownLatch delivered = new CountDownLatch(1);
+    private volatile BufferedImage image;
+
+    @Override
+    public void onLoaded(@NonNull BufferedImage image) {
+        this.image = image;
+        delivered.countDown();
+    }
+
+    public boolean isDelivered() {
+        return delivered.getCount() == 0;
+    }
+
+    /**
+     * Waits for the image, failing the test if none is delivered
+     */
+    public BufferedImage await() throws InterruptedException {
+        assertTrue("Image was not delivered", delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return image;
+    }
+}
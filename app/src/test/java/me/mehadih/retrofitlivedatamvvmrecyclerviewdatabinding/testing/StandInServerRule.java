@@ -0,0 +1,145 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiRequestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.ApiService;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CircuitBreaker;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.RetryPolicy;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.WireFormat;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.di.NetworkModule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * The app's network stack pointed at a local MockWebServer
+ *
+ * Before each test a server, an IO executor, a MetricsRegistry and the OkHttpClient built
+ * by NetworkModule (with its HTTP cache in a temporary folder) are started; after it they
+ * are shut down and the folder is deleted. Tests set a dispatcher on, or enqueue responses
+ * to, {@link #server()}, and build ApiServices against it with {@link #apiService()}, which
+ * offer NetworkModule's wire formats unless given others.
+ */
+public class StandInServerRule extends ExternalResource {
+    private static final int DEFAULT_IO_THREADS = 4;
+    private static final int IO_QUEUE_CAPACITY = 64;
+
+    private final TemporaryFolder tempFolder = new TemporaryFolder();
+    private final int ioThreads;
+    private MockWebServer server;
+    private InstrumentedExecutor executor;
+    private MetricsRegistry metrics;
+    private OkHttpClient client;
+
+    public StandInServerRule() {
+        this(DEFAULT_IO_THREADS);
+    }
+
+    /**
+     * @param ioThreads Threads of the IO executor, as NetworkModule's 4 by default
+     */
+    public StandInServerRule(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        // The folder outlives the server and client using it
+        return tempFolder.apply(super.apply(base, description), description);
+    }
+
+    @Override
+    protected void before() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        executor = new InstrumentedExecutor("test-io", ioThreads, IO_QUEUE_CAPACITY);
+        metrics = new MetricsRegistry();
+        client = NetworkModule.createOkHttpClient(tempFolder.newFolder(), HttpLoggingInterceptor.Level.NONE, metrics);
+    }
+
+    @Override
+    protected void after() {
+        executor.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        try {
+            server.shutdown();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public MockWebServer server() {
+        return server;
+    }
+
+    public InstrumentedExecutor executor() {
+        return executor;
+    }
+
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    public OkHttpClient client() {
+        return client;
+    }
+
+    /**
+     * Returns a new empty folder, deleted after the test
+     */
+    public File newFolder() throws IOException {
+        return tempFolder.newFolder();
+    }
+
+    /**
+     * Returns the Retrofit interface, with NetworkModule's converters, against the server
+     */
+    public ApiRequestData api() {
+        return NetworkModule.createRetrofit(client, server.url("/").toString(), NetworkModule.createWireFormats())
+                .create(ApiRequestData.class);
+    }
+
+    /**
+     * Returns an ApiService with the production retry policy and circuit breaker
+     */
+    public ApiService apiService() {
+        return apiService(NetworkModule.createWireFormats());
+    }
+
+    /**
+     * Returns an ApiService that decodes streamed users with these formats besides JSON
+     */
+    public ApiService apiService(List<WireFormat> formats) {
+        return new ApiService(api(), executor, metrics, formats);
+    }
+
+    /**
+     * Returns an ApiService whose endpoints each get a policy and breaker from these factories
+     */
+    public ApiService apiService(Supplier<RetryPolicy> retryPolicies, Supplier<CircuitBreaker> circuitBreakers) {
+        return new ApiService(api(), executor, metrics, NetworkModule.createWireFormats(),
+                retryPolicies, circuitBreakers);
+    }
+
+    /**
+     * Waits until the IO executor has no running or queued tasks
+     */
+    public void awaitIdle() throws InterruptedException {
+        while (executor.getActiveCount() > 0 || executor.getQueueDepth() > 0) {
+            Thread.sleep(1);
+        }
+    }
+}
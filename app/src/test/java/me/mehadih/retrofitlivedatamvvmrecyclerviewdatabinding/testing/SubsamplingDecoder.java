@@ -0,0 +1,49 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import androidx.annotation.NonNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.BitmapDecoder;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.image.ImageDecoder;
+
+/**
+ * Decodes with ImageIO, reading every sampleSize-th pixel as BitmapFactory does
+ *
+ * ImageIO source subsampling is the JVM counterpart of BitmapFactory's inSampleSize; the
+ * sample size is BitmapDecoder's.
+ */
+public final class SubsamplingDecoder implements ImageDecoder<BufferedImage> {
+    @Override
+    public BufferedImage decode(@NonNull byte[] data, int targetPx) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                int sampleSize = BitmapDecoder.calculateInSampleSize(reader.getWidth(0), reader.getHeight(0), targetPx);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public long sizeBytes(@NonNull BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+}
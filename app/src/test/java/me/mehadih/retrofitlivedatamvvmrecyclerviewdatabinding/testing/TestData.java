@@ -0,0 +1,71 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.UserProtobufFormat;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import okio.Buffer;
+
+/**
+ * Deterministic fixtures shared by the tests and benchmarks
+ */
+public final class TestData {
+    /** Snapshot cache budget for pipeline tests: 1/16 of a 256 MB heap, as on a typical phone */
+    public static final long SNAPSHOT_CACHE_BYTES = 16L * 1024 * 1024;
+
+    private TestData() {}
+
+    /**
+     * Creates users with ids 1..count
+     */
+    public static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            users.add(new User(id, "User Name " + id, "user" + id, "user" + id + "@example.com"));
+        }
+        return users;
+    }
+
+    /**
+     * Returns a copy of the list where changeRatio of the rows differ from the original:
+     * half of them have edited content and the other half are removed
+     */
+    public static List<User> mutate(List<User> original, double changeRatio, long seed) {
+        Random random = new Random(seed);
+        List<User> mutated = new ArrayList<>(original.size());
+        for (User user : original) {
+            if (random.nextDouble() >= changeRatio) {
+                mutated.add(new User(user.getId(), user.getName(), user.getUsername(), user.getEmail()));
+            } else if (random.nextBoolean()) {
+                mutated.add(new User(user.getId(), user.getName() + " (edited)", user.getUsername(), user.getEmail()));
+            }
+        }
+        return mutated;
+    }
+
+    /**
+     * Serializes count users into the JSON array served by the /users endpoint
+     */
+    public static String usersJson(int count) {
+        return new Gson().toJson(users(count));
+    }
+
+    /**
+     * Serializes count users into the protobuf UserList served to clients that accept it
+     */
+    public static byte[] usersProtobuf(int count) {
+        Buffer buffer = new Buffer();
+        try {
+            UserProtobufFormat.write(users(count), buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.readByteArray();
+    }
+}
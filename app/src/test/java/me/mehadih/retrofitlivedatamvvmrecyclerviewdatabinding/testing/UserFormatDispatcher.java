@@ -0,0 +1,52 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.UserProtobufFormat;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Serves a fixed user list as protobuf when the Accept header allows it, as JSON otherwise
+ * Protobuf support can be switched off to stand in for a server that only speaks JSON.
+ */
+public class UserFormatDispatcher extends Dispatcher {
+    private final String json;
+    private final byte[] protobuf;
+    private final AtomicLong bytesServed = new AtomicLong();
+    private volatile boolean protobufSupported = true;
+
+    public UserFormatDispatcher(int users) {
+        this.json = TestData.usersJson(users);
+        this.protobuf = TestData.usersProtobuf(users);
+    }
+
+    public void setProtobufSupported(boolean protobufSupported) {
+        this.protobufSupported = protobufSupported;
+    }
+
+    /**
+     * Returns the body bytes served so far and starts counting from zero again
+     */
+    public long takeBytesServed() {
+        return bytesServed.getAndSet(0);
+    }
+
+    @NonNull
+    @Override
+    public MockResponse dispatch(@NonNull RecordedRequest request) {
+        String accept = request.getHeader("Accept");
+        MockResponse response = new MockResponse().setHeader("Vary", "Accept");
+        if (protobufSupported && accept != null && accept.contains(UserProtobufFormat.MEDIA_TYPE)) {
+            bytesServed.addAndGet(protobuf.length);
+            return response.setHeader("Content-Type", UserProtobufFormat.MEDIA_TYPE)
+                    .setBody(new Buffer().write(protobuf));
+        }
+        bytesServed.addAndGet(json.length());
+        return response.setHeader("Content-Type", "application/json").setBody(json);
+    }
+}
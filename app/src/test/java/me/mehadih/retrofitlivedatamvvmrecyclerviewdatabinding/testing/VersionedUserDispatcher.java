@@ -0,0 +1,112 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.UserChanges;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * In-memory users backend serving users and users/changes
+ * Every change is stamped with a new version so deltas can be computed for any client.
+ */
+public final class VersionedUserDispatcher extends Dispatcher {
+    private final Gson gson = new Gson();
+    private final Random random = new Random(7);
+    private final AtomicLong bytesServed = new AtomicLong();
+    /** Current users in display order */
+    private final Map<Integer, User> users = new LinkedHashMap<>();
+    /** Version of the last change to each id, including deleted ids */
+    private final Map<Integer, Long> changedAt = new LinkedHashMap<>();
+    private long version = 1;
+    private int nextId;
+
+    public VersionedUserDispatcher(List<User> initialUsers) {
+        for (User user : initialUsers) {
+            users.put(user.getId(), user);
+            changedAt.put(user.getId(), version);
+            nextId = Math.max(nextId, user.getId() + 1);
+        }
+    }
+
+    public synchronized List<User> snapshot() {
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * Edits most of the changed users, deletes one and inserts one
+     */
+    public synchronized void applyRandomChanges(int count) {
+        version++;
+        List<Integer> ids = new ArrayList<>(users.keySet());
+        for (int i = 0; i < count - 2; i++) {
+            User user = users.get(ids.get(random.nextInt(ids.size())));
+            users.put(user.getId(), new User(user.getId(), user.getName() + " (v" + version + ")",
+                    user.getUsername(), user.getEmail()));
+            changedAt.put(user.getId(), version);
+        }
+        int deleted = ids.get(random.nextInt(ids.size()));
+        users.remove(deleted);
+        changedAt.put(deleted, version);
+        int id = nextId++;
+        users.put(id, new User(id, "New User " + id, "new" + id, "new" + id + "@example.com"));
+        changedAt.put(id, version);
+    }
+
+    /**
+     * Returns the response body bytes served so far
+     */
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        String path = request.getRequestUrl() != null ? request.getRequestUrl().encodedPath() : "";
+        String body;
+        if (path.equals("/users/changes")) {
+            body = gson.toJson(changesSince(Long.parseLong(request.getRequestUrl().queryParameter("since"))));
+        } else if (path.equals("/users")) {
+            body = gson.toJson(snapshot());
+        } else {
+            return new MockResponse().setResponseCode(404);
+        }
+        bytesServed.addAndGet(body.length());
+        return new MockResponse().setBody(body);
+    }
+
+    private UserChanges changesSince(long since) {
+        if (since <= 0) {
+            return new UserChanges(version, true, snapshot(), null);
+        }
+        List<User> upserted = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : changedAt.entrySet()) {
+            if (entry.getValue() > since) {
+                User user = users.get(entry.getKey());
+                if (user != null) {
+                    upserted.add(user);
+                } else {
+                    deleted.add(entry.getKey());
+                }
+            }
+        }
+        int[] deletedIds = new int[deleted.size()];
+        for (int i = 0; i < deletedIds.length; i++) {
+            deletedIds[i] = deleted.get(i);
+        }
+        return new UserChanges(version, false, upserted, deletedIds);
+    }
+}
@@ -0,0 +1,80 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Recording, replaying and position mapping of ListChanges, including moves
+ */
+public class ListChangesTest {
+    @Test
+    public void replaysEveryOperationInOrder() {
+        ListChanges changes = record();
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b", "c", "d", "e"));
+
+        changes.dispatchTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                list.addAll(position, Collections.nCopies(count, "+"));
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                list.subList(position, position + count).clear();
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                list.add(toPosition, list.remove(fromPosition));
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                for (int i = position; i < position + count; i++) {
+                    list.set(i, "*");
+                }
+            }
+        });
+
+        assertEquals(Arrays.asList("e", "a", "+", "+", "c", "*"), list);
+        assertEquals(4, changes.getOperationCount());
+    }
+
+    @Test
+    public void mapsPositionsBackToTheOriginalList() {
+        assertArrayEquals(new int[] {4, 0, -1, -1, 2, -1}, record().getSourcePositions(5));
+    }
+
+    @Test
+    public void mergesAdjacentRanges() {
+        ListChanges changes = new ListChanges();
+        changes.onInserted(3, 1);
+        changes.onInserted(4, 2);
+        changes.onRemoved(0, 1);
+        changes.onRemoved(0, 1);
+
+        assertEquals(2, changes.getOperationCount());
+        assertArrayEquals(new int[] {2, -1, -1, -1, 3, 4, 5}, changes.getSourcePositions(6));
+    }
+
+    /**
+     * Records the changes turning a, b, c, d, e into e, a, +, +, c, *
+     */
+    private static ListChanges record() {
+        ListChanges changes = new ListChanges();
+        changes.onRemoved(1, 1);
+        changes.onMoved(3, 0);
+        changes.onInserted(2, 2);
+        changes.onChanged(5, 1, null);
+        return changes;
+    }
+}
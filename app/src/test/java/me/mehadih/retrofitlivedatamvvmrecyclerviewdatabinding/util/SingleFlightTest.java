@@ -0,0 +1,133 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Deduplication of concurrent calls by SingleFlight, and releasing keys once tasks finish
+ */
+public class SingleFlightTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsForOneKeyShareATask() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<Integer> first = singleFlight.execute("users", executor, () -> {
+            await(release);
+            return runs.incrementAndGet();
+        });
+        CompletableFuture<Integer> second = singleFlight.execute("users", executor, runs::incrementAndGet);
+        release.countDown();
+
+        assertSame(first, second);
+        assertEquals(Integer.valueOf(1), second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(1, singleFlight.getExecutedCount());
+        assertEquals(1, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void differentKeysRunSeparately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = singleFlight.execute("page 1", executor, () -> {
+            await(release);
+            return 1;
+        });
+        CompletableFuture<Integer> second = singleFlight.execute("page 2", executor, () -> 2);
+
+        assertNotSame(first, second);
+        assertEquals(Integer.valueOf(2), second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals(Integer.valueOf(1), first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void completedTaskReleasesTheKey() throws Exception {
+        assertEquals(Integer.valueOf(1), singleFlight.execute("users", executor, () -> 1)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), singleFlight.execute("users", executor, () -> 2)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.getExecutedCount());
+    }
+
+    @Test
+    public void failedTaskReleasesTheKey() throws Exception {
+        CompletableFuture<Integer> failed = singleFlight.execute("users", executor, () -> {
+            throw new IllegalStateException("Backend down");
+        });
+        assertFailsWith(IllegalStateException.class, failed);
+
+        assertEquals(Integer.valueOf(2), singleFlight.execute("users", executor, () -> 2)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedAsyncTaskReleasesTheKey() throws Exception {
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        CompletableFuture<Integer> failed = singleFlight.executeAsync("users", executor, () -> pending);
+        // Still in flight until the returned Future completes
+        assertSame(failed, singleFlight.executeAsync("users", executor, CompletableFuture::new));
+
+        pending.completeExceptionally(new IllegalStateException("Retries exhausted"));
+        assertFailsWith(IllegalStateException.class, failed);
+
+        assertEquals(Integer.valueOf(2), singleFlight.execute("users", executor, () -> 2)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectedTaskReleasesTheKey() throws Exception {
+        CompletableFuture<Integer> rejected = singleFlight.execute("users", task -> {
+            throw new RejectedExecutionException("Queue full");
+        }, () -> 1);
+        assertFailsWith(RejectedExecutionException.class, rejected);
+
+        assertEquals(Integer.valueOf(2), singleFlight.execute("users", executor, () -> 2)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<?> future)
+            throws Exception {
+        try {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), type.isInstance(e.getCause()));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
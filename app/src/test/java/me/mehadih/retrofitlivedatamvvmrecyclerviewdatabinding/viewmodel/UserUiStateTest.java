@@ -0,0 +1,90 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * UserUiState through the transitions UserViewModel makes, and the screen each state shows
+ */
+public class UserUiStateTest {
+    private final List<User> users = TestData.users(10);
+    private final UserUiState content = UserUiState.INITIAL.withLoading(false).withUsers(users, users);
+
+    @Test
+    public void loadingThenContent() {
+        assertTrue(UserUiState.INITIAL.isLoading());
+        assertNull(UserUiState.INITIAL.getUsers());
+        assertEquals(UserScreen.LOADING, UserScreen.of(UserUiState.INITIAL));
+
+        assertFalse(content.isLoading());
+        assertSame(users, content.getUsers());
+        assertSame(users, content.getVisibleUsers());
+        assertNull(content.getErrorMessage());
+        assertEquals(UserScreen.CONTENT, UserScreen.of(content));
+    }
+
+    @Test
+    public void refreshingKeepsTheList() {
+        UserUiState refreshing = content.withLoading(true).withErrorMessage(null);
+
+        assertTrue(refreshing.isLoading());
+        assertSame(users, refreshing.getUsers());
+        assertSame(users, refreshing.getVisibleUsers());
+        assertEquals(UserScreen.CONTENT, UserScreen.of(refreshing));
+    }
+
+    @Test
+    public void errorKeepsAListOnHandShowing() {
+        UserUiState failed = content.withLoading(true).withLoading(false).withErrorMessage("Timeout");
+
+        assertEquals("Timeout", failed.getErrorMessage());
+        assertSame(users, failed.getVisibleUsers());
+        assertEquals(UserScreen.CONTENT, UserScreen.of(failed));
+    }
+
+    @Test
+    public void errorWithNothingToShow() {
+        List<User> none = Collections.emptyList();
+        UserUiState failed = UserUiState.INITIAL.withLoading(false).withErrorMessage("Timeout").withUsers(none, none);
+
+        assertEquals(UserScreen.ERROR, UserScreen.of(failed));
+        // A refresh after the error shows progress again
+        assertEquals(UserScreen.LOADING, UserScreen.of(failed.withLoading(true)));
+    }
+
+    @Test
+    public void emptyListAndNoSearchMatch() {
+        List<User> none = Collections.emptyList();
+
+        assertEquals(UserScreen.EMPTY, UserScreen.of(UserUiState.INITIAL.withLoading(false).withUsers(none, none)));
+        assertEquals(UserScreen.EMPTY, UserScreen.of(content.withVisibleUsers(none)));
+        // Searching while refreshing keeps the empty result rather than the spinner
+        assertEquals(UserScreen.EMPTY, UserScreen.of(content.withVisibleUsers(none).withLoading(true)));
+    }
+
+    @Test
+    public void unchangedFieldsReturnTheSameInstance() {
+        assertSame(content, content.withLoading(false));
+        assertSame(content, content.withErrorMessage(null));
+        assertSame(content, content.withUsers(users, users));
+        assertSame(content, content.withVisibleUsers(users));
+
+        UserUiState failed = content.withErrorMessage("Timeout");
+        // Equal messages count as unchanged, even as different strings
+        assertSame(failed, failed.withErrorMessage(new String("Timeout")));
+        // Lists are compared by reference: an equal copy is a new list
+        assertNotSame(content, content.withUsers(TestData.users(10), users));
+    }
+}
@@ -0,0 +1,131 @@
+package me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.viewmodel;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.CircuitBreaker;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.api.RetryPolicy;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.SnapshotCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.cache.UserCache;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.metrics.MetricsRegistry;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.model.User;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.repository.UserRepository;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.StandInServerRule;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.testing.TestData;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.InstrumentedExecutor;
+import me.mehadih.retrofitlivedatamvvmrecyclerviewdatabinding.util.Result;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * UserViewModel joining a fetch in flight, and leaving nothing behind once cleared
+ */
+public class UserViewModelTest {
+    private static final int USERS = 100;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public StandInServerRule standIn = new StandInServerRule();
+
+    private final String payload = new Gson().toJson(TestData.users(USERS));
+    /** The ViewModel's own IO executor, held busy so its index builds stay queued */
+    private final InstrumentedExecutor viewModelExecutor = new InstrumentedExecutor("test-viewmodel", 1, 8);
+    private final CountDownLatch releaseExecutor = new CountDownLatch(1);
+    private final Observer<UserUiState> observer = state -> { };
+
+    @After
+    public void shutDownExecutor() {
+        releaseExecutor.countDown();
+        viewModelExecutor.shutdownNow();
+    }
+
+    @Test
+    public void clearingDuringAFetchDetachesAndCancelsItsStage() throws Exception {
+        // Never answered, so the fetch stays in flight
+        standIn.server().enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        UserRepository repository = repository();
+        // A fetch started elsewhere, e.g. for a screen that has since closed
+        LiveData<Result<List<User>>> users = repository.getUsers();
+        UserViewModel viewModel = viewModel(repository);
+
+        viewModel.getUiState().observeForever(observer);
+        assertTrue(users.hasObservers());
+        assertTrue(viewModel.hasPendingWork());
+        viewModel.getUiState().removeObserver(observer);
+        viewModel.onCleared();
+
+        assertFalse(users.hasObservers());
+        assertFalse(viewModel.hasPendingWork());
+        // The fetch was joined, not repeated, and is left running for the cache
+        assertNotNull(standIn.server().takeRequest(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, standIn.server().getRequestCount());
+        assertNotNull(repository.getFetchInFlight());
+    }
+
+    @Test
+    public void clearingCancelsAQueuedIndexBuild() throws Exception {
+        standIn.server().enqueue(new MockResponse().setBody(payload));
+        UserRepository repository = repository();
+        UserViewModel viewModel = viewModel(repository);
+        viewModelExecutor.execute(() -> {
+            try {
+                releaseExecutor.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        viewModel.getUiState().observeForever(observer);
+        awaitIndexBuildQueued();
+        assertTrue(viewModel.hasPendingWork());
+        viewModel.getUiState().removeObserver(observer);
+        viewModel.onCleared();
+
+        assertFalse(repository.getUsers().hasObservers());
+        assertFalse(viewModel.hasPendingWork());
+    }
+
+    private UserRepository repository() throws Exception {
+        MetricsRegistry metrics = standIn.metrics();
+        return new UserRepository(standIn.apiService(RetryPolicy::none, CircuitBreaker::defaults),
+                new UserCache(standIn.newFolder()), snapshotCache(), standIn.executor(), metrics, false);
+    }
+
+    private UserViewModel viewModel(UserRepository repository) {
+        return new UserViewModel(repository, snapshotCache(), viewModelExecutor, standIn.metrics());
+    }
+
+    private SnapshotCache snapshotCache() {
+        return new SnapshotCache(TestData.SNAPSHOT_CACHE_BYTES, standIn.metrics());
+    }
+
+    /**
+     * Waits until the users arrived and their index build is queued behind the blocking task
+     */
+    private void awaitIndexBuildQueued() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (viewModelExecutor.getQueueDepth() == 0) {
+            assertTrue("Index build was not queued", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}